@@ -0,0 +1,179 @@
+package com.github.lizhiwei88.feign.mock.plugin.common;
+
+import com.github.lizhiwei88.feign.mock.plugin.network.AgentEndpoint;
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.IndexNotReadyException;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.search.GlobalSearchScope;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一个被注入 Agent 的运行实例
+ * 由 FeignAgentPatcher 创建并分配 id，进程启动后绑定 ProcessHandler，各实例独立维护启动状态和连接
+ *
+ * @author lizhiwei
+ * @version 1.0
+ * @since 2026/01/26
+ */
+public final class AgentInstance {
+
+    private static final Logger log = Logger.getInstance(AgentInstance.class);
+
+    private final Project project;
+
+    private final String id;
+
+    private final String name;
+
+    // 运行配置模块的运行时 classpath，为 null 时视为包含所有 Feign Client
+    private final GlobalSearchScope runtimeScope;
+
+    private final AgentEndpoint endpoint;
+
+    private final Object readyLock = new Object();
+
+    private volatile StartupStatus status = StartupStatus.STOPPED;
+
+    private volatile ProcessHandler processHandler;
+
+    // 最近一次推送配置时 FeignMockData 快照的版本号，未推送过为 0
+    private volatile long syncedDataVersion;
+
+    // Feign Client 全限定名 -> 是否在该实例的 classpath 中
+    private final Map<String, Boolean> clientVisibility = new ConcurrentHashMap<>();
+
+    AgentInstance(@NotNull Project project, @NotNull String id, @NotNull String name, @Nullable GlobalSearchScope runtimeScope) {
+        this.project = project;
+        this.id = id;
+        this.name = name;
+        this.runtimeScope = runtimeScope;
+        this.endpoint = new AgentEndpoint(project);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public AgentEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    public ProcessHandler getProcessHandler() {
+        return processHandler;
+    }
+
+    void setProcessHandler(ProcessHandler processHandler) {
+        this.processHandler = processHandler;
+    }
+
+    long getSyncedDataVersion() {
+        return syncedDataVersion;
+    }
+
+    void setSyncedDataVersion(long syncedDataVersion) {
+        this.syncedDataVersion = syncedDataVersion;
+    }
+
+    public StartupStatus getStatus() {
+        return status;
+    }
+
+    void setStatus(StartupStatus status) {
+        synchronized (readyLock) {
+            this.status = status;
+            readyLock.notifyAll();
+        }
+    }
+
+    /**
+     * 进入 STARTING，回调先于监控任务到达时保持 RUNNING
+     *
+     * @return 是否需要继续等待
+     */
+    boolean markStarting() {
+        synchronized (readyLock) {
+            if (status == StartupStatus.RUNNING) return false;
+            status = StartupStatus.STARTING;
+            return true;
+        }
+    }
+
+    /**
+     * 切换为 RUNNING
+     *
+     * @return 本次调用是否完成了切换，保证配置只推送一次
+     */
+    boolean markRunning() {
+        synchronized (readyLock) {
+            if (status == StartupStatus.RUNNING) return false;
+            setStatus(StartupStatus.RUNNING);
+            return true;
+        }
+    }
+
+    /**
+     * 仍在 STARTING 时等待状态变化
+     */
+    void awaitStatusChange(long millis) throws InterruptedException {
+        synchronized (readyLock) {
+            if (status == StartupStatus.STARTING) {
+                readyLock.wait(millis);
+            }
+        }
+    }
+
+    void wakeUp() {
+        synchronized (readyLock) {
+            readyLock.notifyAll();
+        }
+    }
+
+    /**
+     * 超时仍未启动时切换为 STOPPED
+     */
+    void stopIfStarting() {
+        synchronized (readyLock) {
+            if (status == StartupStatus.STARTING) {
+                setStatus(StartupStatus.STOPPED);
+            }
+        }
+    }
+
+    /**
+     * 签名所属的 Feign Client 是否在该实例的 classpath 中，结果在实例生命周期内缓存
+     */
+    public boolean containsClient(String signature) {
+        if (runtimeScope == null) return true;
+        int index = signature.indexOf('#');
+        String className = index > 0 ? signature.substring(0, index) : signature;
+        Boolean visible = clientVisibility.get(className);
+        if (visible == null) {
+            try {
+                visible = ReadAction.compute(() -> !project.isDisposed()
+                        && JavaPsiFacade.getInstance(project).findClass(className, runtimeScope) != null);
+            } catch (IndexNotReadyException e) {
+                // 索引未就绪时宁可多发，不缓存结果
+                log.debug("Index not ready, assume " + className + " is visible to " + name);
+                return true;
+            }
+            clientVisibility.put(className, visible);
+        }
+        return visible;
+    }
+
+    @Override
+    public String toString() {
+        return name + "[" + id + "]";
+    }
+}
@@ -1,16 +1,34 @@
 package com.github.lizhiwei88.feign.mock.plugin.common;
 
+import com.github.lizhiwei88.feign.mock.plugin.network.AgentEndpoint;
 import com.github.lizhiwei88.feign.mock.plugin.network.AgentRequestManager;
+import com.github.lizhiwei88.feign.mock.plugin.network.AgentSyncQueue;
 import com.github.lizhiwei88.feign.mock.plugin.settings.FeignMockData;
-import com.github.lizhiwei88.feign.mock.plugin.settings.FeignMockSettingFileReload;
+import com.github.lizhiwei88.feign.mock.plugin.settings.FeignMockSettings;
+import com.intellij.execution.configurations.RunProfile;
+import com.intellij.execution.process.ProcessHandler;
 import com.intellij.openapi.components.Service;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.Project;
+import com.intellij.psi.search.GlobalSearchScope;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
 
 /**
  * 运行时管理
+ * 维护所有注入了 Agent 的运行实例，每个实例独立监控启动状态，互不影响
  *
  * @author lizhiwei
  * @version 1.0
@@ -20,9 +38,24 @@ import org.jetbrains.annotations.NotNull;
 public final class FeignMockRuntimeManager {
 
     private static final Logger log = Logger.getInstance(FeignMockRuntimeManager.class);
-    private volatile StartupStatus status = StartupStatus.STOPPED;
+
+    // 等待 Agent 就绪的最长时间
+    private static final long MAX_WAIT_MILLIS = 300_000;
+
+    // 等待回调时检查取消状态的间隔
+    private static final long WAIT_SLICE_MILLIS = 500;
+
+    // 兼容不支持就绪回调的旧版 Agent，低频 ping 兜底
+    private static final long LEGACY_PING_INTERVAL_MILLIS = 5000;
+
     private final Project project;
 
+    // 实例 id -> 实例
+    private final Map<String, AgentInstance> instances = new ConcurrentHashMap<>();
+
+    // 已注入 Agent、尚未绑定进程的实例，按运行配置区分
+    private final Map<RunProfile, Deque<AgentInstance>> preparedInstances = new ConcurrentHashMap<>();
+
     public FeignMockRuntimeManager(Project project) {
         this.project = project;
     }
@@ -31,74 +64,293 @@ public final class FeignMockRuntimeManager {
         return project.getService(FeignMockRuntimeManager.class);
     }
 
+    /**
+     * 汇总状态：任一实例运行中即为 RUNNING
+     */
     public StartupStatus getStatus() {
-        return status;
+        StartupStatus result = StartupStatus.STOPPED;
+        for (AgentInstance instance : instances.values()) {
+            StartupStatus status = instance.getStatus();
+            if (status == StartupStatus.RUNNING) return status;
+            if (status == StartupStatus.STARTING) result = status;
+        }
+        return result;
+    }
+
+    public List<AgentInstance> getRunningInstances() {
+        List<AgentInstance> running = new ArrayList<>();
+        for (AgentInstance instance : instances.values()) {
+            if (instance.getStatus() == StartupStatus.RUNNING) {
+                running.add(instance);
+            }
+        }
+        return running;
+    }
+
+    /**
+     * @return 实例已停止或不存在时返回 null
+     */
+    public AgentInstance findInstance(String id) {
+        return instances.get(id);
+    }
+
+    /**
+     * FeignAgentPatcher 注入 Agent 时创建实例
+     *
+     * @param runtimeScope 运行配置模块的运行时 classpath，未知时为 null
+     */
+    public AgentInstance prepareInstance(RunProfile profile, @Nullable GlobalSearchScope runtimeScope) {
+        String id = UUID.randomUUID().toString().substring(0, 8);
+        AgentInstance instance = new AgentInstance(project, id, profile.getName(), runtimeScope);
+        instances.put(id, instance);
+        preparedInstances.computeIfAbsent(profile, key -> new ConcurrentLinkedDeque<>()).addLast(instance);
+        return instance;
     }
 
-    public void setStatus(StartupStatus status) {
-        this.status = status;
+    /**
+     * 进程启动后绑定实例
+     *
+     * @return 未注入 Agent 的运行配置返回 null
+     */
+    public AgentInstance bindProcess(RunProfile profile, ProcessHandler handler) {
+        Deque<AgentInstance> prepared = preparedInstances.remove(profile);
+        if (prepared == null) return null;
+        // 同一次启动可能多次打补丁，最后一次的参数才是实际使用的
+        AgentInstance instance = prepared.pollLast();
+        prepared.forEach(stale -> instances.remove(stale.getId()));
+        if (instance != null) {
+            instance.setProcessHandler(handler);
+        }
+        return instance;
+    }
+
+    /**
+     * 进程未能启动，丢弃已创建的实例
+     */
+    public void discardPrepared(RunProfile profile) {
+        Deque<AgentInstance> prepared = preparedInstances.remove(profile);
+        if (prepared != null) {
+            prepared.forEach(instance -> instances.remove(instance.getId()));
+        }
     }
 
     /**
      * 在后台线程执行的监控逻辑
+     * 正常情况下由 Agent 回调 {@link #onAgentReady} 唤醒，这里只负责等待和超时
      *
      * @param indicator
      */
-    public void startMonitoring(ProgressIndicator indicator) {
-        setStatus(StartupStatus.STARTING);
-        int maxRetry = 200;
-        for (int i = 0; i < maxRetry; i++) {
+    public void startMonitoring(AgentInstance instance, ProgressIndicator indicator) {
+        // 回调可能先于监控任务到达
+        if (!instance.markStarting()) return;
+
+        long deadline = System.currentTimeMillis() + MAX_WAIT_MILLIS;
+        long nextPing = System.currentTimeMillis() + LEGACY_PING_INTERVAL_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
             if (indicator != null && indicator.isCanceled()) {
-                setStatus(StartupStatus.STOPPED);
+                instance.setStatus(StartupStatus.STOPPED);
                 return;
             }
-            if (getStatus() == StartupStatus.STOPPED) {
+            if (instance.getStatus() != StartupStatus.STARTING) {
                 return;
             }
 
-            // 每隔5次重新加载配置
-            if (i % 5 == 0) {
-                FeignMockSettingFileReload.parseExternalXml(project);
-            }
-
-            log.info("等待服务启动中... (" + (i + 1) + "/" + maxRetry + ")");
-            String result = AgentRequestManager.sendPing(project);
-            log.info("服务状态: " + result);
-
-            if ("pong".equals(result)) {
-                log.info("服务启动成功");
-                setStatus(StartupStatus.RUNNING);
-                pushConfig();
-                return;
+            // 端口由握手文件监听更新，刚拿到端口时立即 ping，之后低频重试
+            boolean adopted = adoptLegacyPort(instance);
+            if (instance.getEndpoint().getPort() > 0 && (adopted || System.currentTimeMillis() >= nextPing)) {
+                nextPing = System.currentTimeMillis() + LEGACY_PING_INTERVAL_MILLIS;
+                String result = AgentRequestManager.sendPing(project, instance);
+                log.info("服务状态: " + instance + " -> " + result);
+                if ("pong".equals(result) && instance.markRunning()) {
+                    log.info("服务启动成功: " + instance);
+                    pushConfig(instance);
+                    return;
+                }
             }
 
             try {
-                Thread.sleep(1500);
+                instance.awaitStatusChange(WAIT_SLICE_MILLIS);
             } catch (InterruptedException e) {
-                setStatus(StartupStatus.STOPPED);
+                instance.setStatus(StartupStatus.STOPPED);
                 Thread.currentThread().interrupt();
                 return;
             }
         }
         // 超时未启动
-        setStatus(StartupStatus.STOPPED);
+        instance.stopIfStarting();
     }
 
-    public void stopMonitoring() {
-        setStatus(StartupStatus.STOPPED);
+    /**
+     * 旧版 Agent 不回调，只把端口写入 feign_mock_settings.xml，该端口未被其他实例占用时才采用
+     * 文件由 AgentHandshakeWatcher 在变化时重新加载，这里只读取内存中的状态；
+     * 启动前残留的旧端口 ping 不通，文件更新后改用新端口
+     *
+     * @return 本次是否采用了新端口
+     */
+    private boolean adoptLegacyPort(AgentInstance instance) {
+        AgentEndpoint endpoint = instance.getEndpoint();
+        int port = Objects.requireNonNull(FeignMockSettings.getInstance(project).getState()).lastKnownPort;
+        if (port <= 0 || port == endpoint.getPort()) return false;
+        for (AgentInstance other : instances.values()) {
+            if (other != instance && other.getEndpoint().getPort() == port) return false;
+        }
+        endpoint.setPort(port);
+        return true;
     }
 
-    private void pushConfig() {
+    /**
+     * 旧版 Agent 写入了新端口，唤醒等待中的实例立即检查
+     */
+    public void onLegacyPortChanged() {
+        for (AgentInstance instance : instances.values()) {
+            if (instance.getStatus() == StartupStatus.STARTING) {
+                instance.wakeUp();
+            }
+        }
+    }
+
+    /**
+     * 进程结束，只停止对应的实例
+     */
+    public void stopMonitoring(ProcessHandler handler) {
+        AgentInstance instance = findByProcess(handler);
+        if (instance == null) return;
+        instances.remove(instance.getId());
+        instance.setStatus(StartupStatus.STOPPED);
+        instance.getEndpoint().close();
+        FeignMockSuspendTracker.getInstance(project).resumed(handler);
+        AgentSyncQueue.getInstance(project).clearPending(instance);
+        log.info("服务已停止: " + instance);
+    }
+
+    private AgentInstance findByProcess(ProcessHandler handler) {
+        for (AgentInstance instance : instances.values()) {
+            if (instance.getProcessHandler() == handler) {
+                return instance;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Agent 端点绑定完成后的回调
+     *
+     * @param instanceId Agent 回传的实例 id，旧版 Agent 不回传时为 null
+     * @param port       Agent 监听端口
+     * @param features   Agent 支持的请求体编码
+     * @param channel    持久化通道地址，未提供时为 null
+     */
+    public void onAgentReady(@Nullable String instanceId, int port, Collection<String> features, @Nullable String channel) {
+        AgentInstance instance = instanceId != null ? instances.get(instanceId) : findStarting();
+        if (instance == null) {
+            log.warn("Agent ready callback from unknown instance: " + instanceId);
+            return;
+        }
+        AgentEndpoint endpoint = instance.getEndpoint();
+        if (port > 0) {
+            endpoint.setPort(port);
+        }
+        endpoint.setFeatures(features);
+        if (channel != null) {
+            endpoint.connect(channel);
+        }
+        // 已运行时再次回调说明 Agent 重新绑定（如 devtools 重启），只补齐差异
+        log.info((instance.markRunning() ? "服务启动成功" : "服务重新连接") + ": " + instance + ", port=" + port);
+        pushConfig(instance);
+    }
+
+    /**
+     * 旧版 Agent 未回传实例 id 时，只有唯一一个等待中的实例才能确定归属；
+     * 同时有多个实例在启动时不猜测，交给各实例的旧版端口轮询
+     */
+    private AgentInstance findStarting() {
+        AgentInstance result = null;
+        for (AgentInstance instance : instances.values()) {
+            if (instance.getStatus() == StartupStatus.STARTING) {
+                if (result != null) {
+                    log.warn("Agent ready callback without instance id while several instances are starting, ignored");
+                    return null;
+                }
+                result = instance;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 向单个实例推送配置，只包含其 classpath 中的 Feign Client；
+     * Agent 提供 manifest 时只同步新增、变更和删除的签名，
+     * 不提供 manifest 的 Agent 重新连接时只补发上次推送之后变化的签名
+     */
+    private void pushConfig(AgentInstance instance) {
         FeignMockData feignMockData = FeignMockData.getInstance(project);
         if (feignMockData == null) return;
 
-        feignMockData.getAll().forEach((signature, json) -> {
-            if (json == null || json.isBlank()) {
-                return;
+        AgentSyncQueue syncQueue = AgentSyncQueue.getInstance(project);
+        Map<String, String> manifest = AgentRequestManager.fetchManifest(project, instance);
+        // 先取版本号再读取数据，读取之后的编辑会带着更大的版本号覆盖本次推送
+        long version = AgentRequestManager.nextVersion(project);
+        // 签名和摘要取自同一份快照；内容按签名读取最新数据，读取期间的编辑会由同步队列以更大的版本号再次发送
+        FeignMockData.Snapshot snapshot = feignMockData.snapshot();
+        long syncedVersion = instance.getSyncedDataVersion();
+        Collection<String> candidates = manifest == null && syncedVersion > 0
+                ? snapshot.changedSince(syncedVersion)
+                : snapshot.getSignatures();
+
+        Map<String, String> mocks = new LinkedHashMap<>();
+        List<String> removed = new ArrayList<>();
+        for (String signature : candidates) {
+            if (!instance.containsClient(signature)) continue;
+            if (!snapshot.contains(signature)) {
+                removed.add(signature);
+                continue;
+            }
+            // 摘要来自索引，Agent 已持有相同内容时无需加载
+            if (manifest != null && Objects.equals(manifest.get(signature), snapshot.getHash(signature))) {
+                syncQueue.markSynced(instance, signature);
+                continue;
+            }
+            String json = feignMockData.get(signature);
+            if (json != null && !json.isBlank()) {
+                mocks.put(signature, json);
             }
-            log.debug("发送数据中...");
-            String result = AgentRequestManager.sendUpdate(project, signature, json);
-            log.debug("发送结果: " + result);
-        });
+        }
+        if (manifest != null) {
+            // Agent 持有但本地已删除的签名
+            manifest.keySet().stream()
+                    .filter(signature -> !snapshot.contains(signature))
+                    .forEach(removed::add);
+        }
+
+        // 全部送达才推进已同步版本，否则下次重连仍从原版本补发
+        boolean delivered = true;
+        for (String signature : removed) {
+            String result = AgentRequestManager.sendClear(project, instance, signature, AgentRequestManager.nextVersion(project));
+            log.debug("删除结果: " + signature + " -> " + result);
+            syncQueue.recordResult(instance, signature, result);
+            delivered &= isDelivered(result);
+        }
+
+        if (!mocks.isEmpty()) {
+            log.debug("批量发送数据中... (" + mocks.size() + ") -> " + instance);
+            Map<String, String> results = AgentRequestManager.sendBatchUpdate(project, instance, mocks, version);
+            // 挂起的签名等待恢复后重放，失败的按退避重试
+            for (Map.Entry<String, String> entry : results.entrySet()) {
+                if (!syncQueue.recordResult(instance, entry.getKey(), entry.getValue())) {
+                    log.warn("发送失败: " + entry.getKey() + " -> " + entry.getValue());
+                }
+                delivered &= isDelivered(entry.getValue());
+            }
+        }
+        if (delivered) {
+            instance.setSyncedDataVersion(snapshot.getVersion());
+        }
+    }
+
+    /**
+     * Agent 已应用该次发送，挂起和失败都不算
+     */
+    private static boolean isDelivered(String result) {
+        return "OK".equals(result) || "Deleted".equals(result);
     }
 }
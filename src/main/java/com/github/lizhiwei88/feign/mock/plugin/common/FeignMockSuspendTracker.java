@@ -0,0 +1,72 @@
+package com.github.lizhiwei88.feign.mock.plugin.common;
+
+import com.github.lizhiwei88.feign.mock.plugin.listener.FeignMockDebugListener;
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.xdebugger.XDebugSession;
+import com.intellij.xdebugger.XDebuggerManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 调试挂起状态跟踪
+ * 由 FeignMockDebugListener 在会话暂停/恢复/停止时维护，发送请求前的判断无需遍历调试会话；
+ * 创建时接管已存在的调试会话，包括其当前的暂停状态
+ *
+ * @author lizhiwei
+ * @version 1.0
+ * @since 2026/01/25
+ */
+@Service(Service.Level.PROJECT)
+public final class FeignMockSuspendTracker {
+
+    // 处于暂停状态的被调试进程
+    private final Set<ProcessHandler> suspendedProcesses = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger suspendedCount = new AtomicInteger();
+
+    public FeignMockSuspendTracker(Project project) {
+        // 插件加载或服务首次创建前已存在的调试会话不会再触发 currentSessionChanged，这里补挂监听
+        for (XDebugSession session : XDebuggerManager.getInstance(project).getDebugSessions()) {
+            FeignMockDebugListener.attach(session, this);
+        }
+    }
+
+    public static FeignMockSuspendTracker getInstance(@NotNull Project project) {
+        return project.getService(FeignMockSuspendTracker.class);
+    }
+
+    public void paused(ProcessHandler handler) {
+        // 同一进程重复暂停只计一次
+        if (handler != null && suspendedProcesses.add(handler)) {
+            suspendedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 会话恢复或停止
+     */
+    public void resumed(ProcessHandler handler) {
+        if (handler != null && suspendedProcesses.remove(handler)) {
+            suspendedCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * 项目中是否有被调试进程处于暂停状态
+     */
+    public boolean isAnySuspended() {
+        return suspendedCount.get() > 0;
+    }
+
+    /**
+     * 指定进程是否处于暂停状态
+     */
+    public boolean isSuspended(ProcessHandler handler) {
+        return handler != null && suspendedProcesses.contains(handler);
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.lizhiwei88.feign.mock.plugin.common;
+
+import com.intellij.util.io.DigestUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+
+/**
+ * Mock 内容摘要
+ * 本地索引和 Agent manifest 使用同一算法，持久化与传输两侧共用
+ *
+ * @author lizhiwei
+ * @version 1.0
+ * @since 2026/02/10
+ */
+public final class MockDataDigest {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private MockDataDigest() {
+    }
+
+    /**
+     * 计算内容摘要: 压缩后 JSON 的 UTF-8 字节做 SHA-256，输出小写十六进制
+     * Agent 对收到的 JSON 使用相同算法，manifest 中的摘要才能与本地比较
+     */
+    public static String hash(String json) {
+        MessageDigest digest = DigestUtil.sha256();
+        try (Writer writer = new OutputStreamWriter(new DigestOutputStream(OutputStream.nullOutputStream(), digest), StandardCharsets.UTF_8)) {
+            if (json != null) {
+                minify(json, writer);
+            }
+        } catch (IOException e) {
+            // nullOutputStream 不会抛出 IOException
+            throw new IllegalStateException(e);
+        }
+        byte[] bytes = digest.digest();
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * 压缩 JSON 文本并逐字符写出
+     * 状态机遍历：记录是否位于字符串内以及上一个字符是否为转义符，字符串外的空白全部丢弃
+     */
+    public static void minify(String json, Appendable out) throws IOException {
+        boolean inString = false;
+        boolean escaped = false;
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                continue;
+            } else if (c == '"') {
+                inString = true;
+            }
+            out.append(c);
+        }
+    }
+}
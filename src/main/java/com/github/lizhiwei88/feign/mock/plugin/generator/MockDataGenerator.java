@@ -1,16 +1,22 @@
 package com.github.lizhiwei88.feign.mock.plugin.generator;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
+import com.intellij.lang.java.JavaLanguage;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootModificationTracker;
 import com.intellij.psi.*;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.util.PsiUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.math.BigDecimal;
-import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Mock data generator
@@ -22,91 +28,253 @@ import java.util.Map;
 public class MockDataGenerator {
 
     private static final int MAX_DEPTH = 3;
-    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().serializeNulls().create();
 
     private MockDataGenerator() {
     }
 
-    public static String generateJson(@NotNull PsiType type) {
-        Object data = generateData(type, 0);
-        return GSON.toJson(data);
+    /**
+     * 生成预算：超出节点数或字符数后剩余的值写为 null，已展开的对象不再写入后续字段
+     *
+     * @param maxNodes 最多生成的值个数
+     * @param maxChars 输出的最大字符数
+     */
+    public record Budget(int maxNodes, int maxChars) {
     }
 
-    private static Object generateData(@Nullable PsiType type, int depth) {
-        if (type == null) return null;
-        if (depth > MAX_DEPTH) return null;
+    /**
+     * 生成结果
+     *
+     * @param truncated 是否因超出预算而截断
+     */
+    public record GeneratedJson(String json, boolean truncated) {
+    }
+
+    /**
+     * 缓存的对象或数组：生成时输出的 JSON 文本及其中子节点的个数（根节点由 take 计入），复用时按同样的数量计入预算
+     * 输出的嵌套层级与深度一致，同一 "类型@深度" 的文本缩进相同，可直接写入
+     */
+    private record Skeleton(String json, int nodes) {
+    }
+
+    /**
+     * 流式生成：遍历类型时直接写入 JsonWriter，不构建中间对象树
+     * 完整生成的对象和数组以文本形式缓存，后续生成原样写入
+     */
+    public static GeneratedJson generateJson(@NotNull Project project, @NotNull PsiType type, @NotNull Budget budget) {
+        StringWriter out = new StringWriter();
+        Generation generation;
+        try (JsonWriter writer = new JsonWriter(out)) {
+            writer.setIndent("  ");
+            writer.setSerializeNulls(true);
+            generation = new Generation(getSkeletonCache(project), writer, budget, out.getBuffer());
+            generateData(type, 0, generation);
+        } catch (IOException e) {
+            // StringWriter 不会抛出 IOException
+            throw new IllegalStateException(e);
+        }
+        return new GeneratedJson(out.toString(), generation.truncated);
+    }
 
+    /**
+     * 生成结果只取决于类型和深度，按 "类型规范文本@深度" 缓存，Result&lt;T&gt;、UserDTO 等共享类型只遍历一次
+     * 缓存随 Java 结构变化整体失效
+     */
+    private static Map<String, Skeleton> getSkeletonCache(Project project) {
+        return CachedValuesManager.getManager(project).getCachedValue(project, () -> CachedValueProvider.Result.create(
+                new ConcurrentHashMap<String, Skeleton>(),
+                PsiModificationTracker.getInstance(project).forLanguage(JavaLanguage.INSTANCE),
+                ProjectRootModificationTracker.getInstance(project)));
+    }
+
+    private static void generateData(@Nullable PsiType type, int depth, Generation generation) throws IOException {
+        JsonWriter writer = generation.writer;
+        if (type == null || depth > MAX_DEPTH || !generation.take()) {
+            writer.nullValue();
+            return;
+        }
+        // 未替换的类型参数在不同类中可能同名，不缓存
+        if (PsiUtil.resolveClassInType(type) instanceof PsiTypeParameter) {
+            doGenerateData(type, depth, generation);
+            return;
+        }
+        String key = type.getCanonicalText() + "@" + depth;
+        Skeleton cached = generation.cache.get(key);
+        // 剩余预算放不下缓存的结构时重新遍历，按预算截断
+        if (cached != null && generation.fits(cached)) {
+            generation.nodes += cached.nodes();
+            writer.jsonValue(cached.json());
+            return;
+        }
+        int nodes = generation.nodes;
+        int mark = generation.output.length();
+        doGenerateData(type, depth, generation);
+        // 截断的结构不完整，不缓存
+        if (generation.truncated) return;
+        int start = containerStart(generation.output, mark);
+        if (start >= 0) {
+            generation.cache.put(key, new Skeleton(generation.output.substring(start), generation.nodes - nodes));
+        }
+    }
+
+    /**
+     * 跳过 JsonWriter 在值之前写出的逗号、换行缩进和字段名，定位对象或数组的起始位置
+     *
+     * @return 值不是对象或数组时返回 -1
+     */
+    private static int containerStart(CharSequence output, int from) {
+        int i = from;
+        while (i < output.length() && (output.charAt(i) == ',' || Character.isWhitespace(output.charAt(i)))) i++;
+        if (i < output.length() && output.charAt(i) == '"') {
+            // 字段名是 Java 标识符，不含引号和转义
+            int end = i + 1;
+            while (end < output.length() && output.charAt(end) != '"') end++;
+            if (end + 1 < output.length() && output.charAt(end + 1) == ':') {
+                i = end + 2;
+                while (i < output.length() && output.charAt(i) == ' ') i++;
+            }
+        }
+        if (i < output.length() && (output.charAt(i) == '{' || output.charAt(i) == '[')) return i;
+        return -1;
+    }
+
+    private static void doGenerateData(PsiType type, int depth, Generation generation) throws IOException {
+        JsonWriter writer = generation.writer;
         // 1. Array
         if (type instanceof PsiArrayType psiArrayType) {
-            PsiType componentType = psiArrayType.getComponentType();
-            return Collections.singletonList(generateData(componentType, depth + 1));
+            writer.beginArray();
+            generateData(psiArrayType.getComponentType(), depth + 1, generation);
+            writer.endArray();
+            return;
         }
 
         // 2. Primitives and Wrappers
-        if (isBoolean(type)) return true;
-        if (isNumeric(type)) return 0;
-        if (type.equalsToText("java.lang.String")) return "string";
-        if (type.equalsToText("java.lang.Character")) return "a";
+        if (isBoolean(type)) {
+            writer.value(true);
+            return;
+        }
+        if (isNumeric(type)) {
+            writer.value(0);
+            return;
+        }
+        if (type.equalsToText("java.lang.String")) {
+            writer.value("string");
+            return;
+        }
+        if (type.equalsToText("java.lang.Character")) {
+            writer.value("a");
+            return;
+        }
         if (type.equalsToText("java.util.Date") || type.equalsToText("java.time.LocalDateTime")
                 || type.equalsToText("java.time.LocalDate")) {
-            return "2026-01-01 12:00:00";
+            writer.value("2026-01-01 12:00:00");
+            return;
+        }
+        if (type.equalsToText("java.math.BigDecimal")) {
+            writer.value(new BigDecimal("0.00"));
+            return;
         }
-        if (type.equalsToText("java.math.BigDecimal")) return new BigDecimal("0.00");
 
         // 3. Resolve Class
         PsiClass psiClass = PsiUtil.resolveClassInType(type);
-        if (psiClass == null) return new Object();
+        if (psiClass == null) {
+            writer.beginObject().endObject();
+            return;
+        }
 
         String qName = psiClass.getQualifiedName();
         if (qName != null) {
             // Collection
             if (isCollection(qName)) {
-                PsiType elementType = getCollectionElementType(type);
-                return Collections.singletonList(generateData(elementType, depth + 1));
+                writer.beginArray();
+                generateData(getCollectionElementType(type), depth + 1, generation);
+                writer.endArray();
+                return;
             }
             // Map
             if (isMap(qName)) {
-                PsiType valueType = getMapValueType(type);
-                Map<String, Object> map = new LinkedHashMap<>();
-                map.put("key", generateData(valueType, depth + 1));
-                return map;
+                writer.beginObject().name("key");
+                generateData(getMapValueType(type), depth + 1, generation);
+                writer.endObject();
+                return;
             }
             // Enum
             if (psiClass.isEnum()) {
                 for (PsiField field : psiClass.getFields()) {
                     if (field instanceof PsiEnumConstant) {
-                        return field.getName();
+                        writer.value(field.getName());
+                        return;
                     }
                 }
-                return "";
+                writer.value("");
+                return;
             }
             // System classes
             if (isJavaSystemClass(qName)) {
-                return new Object();
+                writer.beginObject().endObject();
+                return;
             }
         }
 
         // 4. Custom Object / POJO
-        Map<String, Object> objectMap = new LinkedHashMap<>();
-        PsiField[] fields = psiClass.getAllFields();
-        for (PsiField field : fields) {
+        writer.beginObject();
+        PsiSubstitutor substitutor = type instanceof PsiClassType psiClassType
+                ? psiClassType.resolveGenerics().getSubstitutor()
+                : null;
+        for (PsiField field : psiClass.getAllFields()) {
+            // 超出预算后不再写入剩余字段
+            if (generation.exhausted()) break;
             // Check for static or transient modifiers
-            if (!field.hasModifierProperty(PsiModifier.STATIC) && !field.hasModifierProperty(PsiModifier.TRANSIENT)) {
-                PsiType fieldType = field.getType();
-                // Resolve generics
-                if (type instanceof PsiClassType psiClassType) {
-                    PsiSubstitutor substitutor = psiClassType.resolveGenerics().getSubstitutor();
-                    fieldType = substitutor.substitute(fieldType);
-                }
-
-                // Simple recursion check
-                if (fieldType == null || !fieldType.equals(type) || depth <= 0) {
-                    objectMap.put(field.getName(), generateData(fieldType, depth + 1));
-                }
+            if (field.hasModifierProperty(PsiModifier.STATIC) || field.hasModifierProperty(PsiModifier.TRANSIENT)) continue;
+            PsiType fieldType = substitutor != null ? substitutor.substitute(field.getType()) : field.getType();
+            // Simple recursion check
+            if (fieldType == null || !fieldType.equals(type) || depth <= 0) {
+                writer.name(field.getName());
+                generateData(fieldType, depth + 1, generation);
             }
         }
+        writer.endObject();
+    }
+
+    /**
+     * 一次生成的状态：输出、缓存和预算计数，字符数直接读取输出缓冲区长度
+     */
+    private static final class Generation {
+
+        private final Map<String, Skeleton> cache;
+
+        private final JsonWriter writer;
+
+        private final Budget budget;
 
-        return objectMap;
+        private final StringBuffer output;
+
+        private int nodes;
+
+        private boolean truncated;
+
+        Generation(Map<String, Skeleton> cache, JsonWriter writer, Budget budget, StringBuffer output) {
+            this.cache = cache;
+            this.writer = writer;
+            this.budget = budget;
+            this.output = output;
+        }
+
+        boolean take() {
+            if (exhausted()) return false;
+            nodes++;
+            return true;
+        }
+
+        boolean exhausted() {
+            boolean exhausted = nodes >= budget.maxNodes() || output.length() >= budget.maxChars();
+            if (exhausted) truncated = true;
+            return exhausted;
+        }
+
+        boolean fits(Skeleton skeleton) {
+            return nodes + skeleton.nodes() <= budget.maxNodes()
+                    && output.length() + skeleton.json().length() <= budget.maxChars();
+        }
     }
 
     private static boolean isCollection(String qName) {
@@ -1,6 +1,8 @@
 package com.github.lizhiwei88.feign.mock.plugin.listener;
 
+import com.github.lizhiwei88.feign.mock.plugin.common.FeignMockSuspendTracker;
 import com.github.lizhiwei88.feign.mock.plugin.network.AgentRequestManager;
+import com.intellij.execution.process.ProcessHandler;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import com.intellij.xdebugger.XDebugSession;
@@ -37,25 +39,43 @@ public class FeignMockDebugListener implements XDebuggerManagerListener {
 
     public static void attach(XDebugSession session) {
         if (session == null) return;
+        attach(session, FeignMockSuspendTracker.getInstance(session.getProject()));
+    }
 
-        if (attachedSessions.contains(session)) {
+    /**
+     * 由 FeignMockSuspendTracker 创建时调用，直接传入 tracker，避免在服务初始化过程中再次获取服务
+     */
+    public static void attach(XDebugSession session, FeignMockSuspendTracker tracker) {
+        if (!attachedSessions.add(session)) {
             return;
         }
-        attachedSessions.add(session);
+
+        Project project = session.getProject();
+        ProcessHandler handler = session.getDebugProcess().getProcessHandler();
 
         session.addSessionListener(new XDebugSessionListener() {
             @Override
             public void sessionPaused() {
-                // Just log or update status if needed
+                tracker.paused(handler);
             }
 
             @Override
             public void sessionResumed() {
                 // This is the key moment: session is back to running state
-                Project project = session.getProject();
+                tracker.resumed(handler);
                 log.info("Debug session resumed, checking for pending Feign Mock updates...");
                 AgentRequestManager.processPendingRequests(project);
             }
+
+            @Override
+            public void sessionStopped() {
+                tracker.resumed(handler);
+            }
         });
+
+        // Session may already be stopped at a breakpoint when we first see it
+        if (session.isPaused()) {
+            tracker.paused(handler);
+        }
     }
 }
@@ -1,5 +1,6 @@
 package com.github.lizhiwei88.feign.mock.plugin.listener;
 
+import com.github.lizhiwei88.feign.mock.plugin.common.AgentInstance;
 import com.github.lizhiwei88.feign.mock.plugin.common.FeignMockRuntimeManager;
 import com.intellij.execution.ExecutionListener;
 import com.intellij.execution.process.ProcessHandler;
@@ -26,6 +27,10 @@ public class ProjectRunListener implements ExecutionListener {
     public void processStarted(@NotNull String executorId, @NotNull ExecutionEnvironment env, @NotNull ProcessHandler handler) {
         log.info("项目开始运行: " + env.getRunProfile().getName());
 
+        // 未注入 Agent 的运行配置无需监控
+        AgentInstance instance = FeignMockRuntimeManager.getInstance(env.getProject()).bindProcess(env.getRunProfile(), handler);
+        if (instance == null) return;
+
         // 尝试关联 Debug Session
         try {
             XDebuggerManager manager = XDebuggerManager.getInstance(env.getProject());
@@ -43,10 +48,10 @@ public class ProjectRunListener implements ExecutionListener {
 
         // 启动后台线程轮询 ping 接口
         // 使用后台任务加载数据
-        new Task.Backgroundable(env.getProject(), "Monitor service...", false) {
+        new Task.Backgroundable(env.getProject(), "Monitor service " + instance.getName() + "...", false) {
             @Override
             public void run(@NotNull ProgressIndicator indicator) {
-                FeignMockRuntimeManager.getInstance(env.getProject()).startMonitoring(indicator);
+                FeignMockRuntimeManager.getInstance(env.getProject()).startMonitoring(instance, indicator);
             }
 
             @Override
@@ -57,9 +62,14 @@ public class ProjectRunListener implements ExecutionListener {
 
     }
 
+    @Override
+    public void processNotStarted(@NotNull String executorId, @NotNull ExecutionEnvironment env) {
+        FeignMockRuntimeManager.getInstance(env.getProject()).discardPrepared(env.getRunProfile());
+    }
+
     @Override
     public void processTerminated(@NotNull String executorId, @NotNull ExecutionEnvironment env, @NotNull ProcessHandler handler, int exitCode) {
         log.info("项目运行结束: " + env.getRunProfile().getName());
-        FeignMockRuntimeManager.getInstance(env.getProject()).stopMonitoring();
+        FeignMockRuntimeManager.getInstance(env.getProject()).stopMonitoring(handler);
     }
 }
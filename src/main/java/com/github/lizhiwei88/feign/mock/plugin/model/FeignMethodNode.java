@@ -5,9 +5,6 @@ import com.intellij.psi.PsiMethod;
 import com.intellij.psi.SmartPointerManager;
 import com.intellij.psi.SmartPsiElementPointer;
 
-import java.util.Arrays;
-import java.util.Objects;
-
 /**
  * Feign方法节点
  *
@@ -18,27 +15,23 @@ import java.util.Objects;
 public class FeignMethodNode {
 
     private final SmartPsiElementPointer<PsiMethod> psiMethodPointer;
-    private final String signature;
+    // 签名保存在 MockSignatureRegistry 中，节点只持有 id
+    private final int signatureId;
     private final String methodName;
 
-    private String mockData;
-
     public FeignMethodNode(PsiMethod method) {
         this.psiMethodPointer = SmartPointerManager.getInstance(method.getProject()).createSmartPsiElementPointer(method);
         this.methodName = method.getName();
-        this.signature = Objects.requireNonNull(method.getContainingClass()).getQualifiedName() + "#" + method.getName() + "(" +
-                String.join(",", Arrays.stream(method.getParameterList().getParameters())
-                        .map(param -> {
-                            try {
-                                return param.getType().getCanonicalText();
-                            } catch (Exception e) {
-                                // 如果无法获取类型规范文本，则使用类型表示文本作为备选
-                                return param.getType().getPresentableText();
-                            }
-                        })
-                        .toArray(String[]::new)) + ")";
-        FeignMockData feignMockData = FeignMockData.getInstance(method.getProject());
-        this.mockData = feignMockData.get(this.signature);
+        this.signatureId = MockSignatureRegistry.getInstance(method.getProject()).idOf(method);
+    }
+
+    /**
+     * @param signature 从 FeignClientIndex 读取的签名，无需解析参数类型
+     */
+    public FeignMethodNode(PsiMethod method, String signature) {
+        this.psiMethodPointer = SmartPointerManager.getInstance(method.getProject()).createSmartPsiElementPointer(method);
+        this.methodName = method.getName();
+        this.signatureId = MockSignatureRegistry.getInstance(method.getProject()).idOf(signature);
     }
 
     @Override
@@ -46,16 +39,33 @@ public class FeignMethodNode {
         return methodName;
     }
 
+    public int getSignatureId() {
+        return signatureId;
+    }
+
+    /**
+     * @return 节点已不在树上且签名已被注册表回收时返回 null
+     */
     public String getSignature() {
-        return signature;
+        return registry().signatureOf(signatureId);
     }
 
+    /**
+     * Mock 内容不在节点中保存，每次从存储读取，其他地方修改后不会过期
+     */
     public String getMockData() {
-        return mockData;
+        return FeignMockData.getInstance(psiMethodPointer.getProject()).get(getSignature());
+    }
+
+    /**
+     * 是否已设置 Mock，只查询注册表中的标记位
+     */
+    public boolean hasMockData() {
+        return registry().hasMock(signatureId);
     }
 
-    public void setMockData(String mockData) {
-        this.mockData = mockData;
+    private MockSignatureRegistry registry() {
+        return MockSignatureRegistry.getInstance(psiMethodPointer.getProject());
     }
 
     public PsiMethod getPsiMethod() {
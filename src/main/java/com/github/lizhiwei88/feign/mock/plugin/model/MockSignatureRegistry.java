@@ -0,0 +1,183 @@
+package com.github.lizhiwei88.feign.mock.plugin.model;
+
+import com.github.lizhiwei88.feign.mock.plugin.settings.FeignMockData;
+import com.github.lizhiwei88.feign.mock.plugin.settings.FeignMockDataListener;
+import com.intellij.lang.java.JavaLanguage;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.SimpleModificationTracker;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 方法签名注册表
+ * 统一计算与 Agent 匹配的方法签名（ClassName#method(参数类型规范文本)），按方法缓存到 Java 结构变化；
+ * 每个签名只保存一份并分配 int id，树节点只持有 id；是否已设置 Mock 用按 id 索引的 BitSet 表示，
+ * 由 FeignMockDataListener 同步更新，渲染时无需查询 Mock 存储。
+ * 树重建后由 {@link #retain} 回收不再被树节点和 Mock 存储引用的签名，id 只增不复用，持有旧 id 的对象不会读到其他签名
+ *
+ * @author lizhiwei
+ * @version 1.0
+ * @since 2026/02/05
+ */
+@Service(Service.Level.PROJECT)
+public final class MockSignatureRegistry implements Disposable {
+
+    private final Project project;
+
+    // 签名 -> id
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    // id -> 签名
+    private final Map<Integer, String> signatures = new HashMap<>();
+
+    // 已设置 Mock 的签名 id
+    private final BitSet mocked = new BitSet();
+
+    // 上次回收之后获取过的 id，可能属于尚未挂到树上的节点（如正在后台加载），本轮不回收
+    private final BitSet touched = new BitSet();
+
+    private int nextId;
+
+    // 每次回收后递增，按类缓存的方法节点依赖它失效，避免复用持有已回收 id 的节点
+    private final SimpleModificationTracker retainTracker = new SimpleModificationTracker();
+
+    public MockSignatureRegistry(Project project) {
+        this.project = project;
+        // 新签名在分配 id 时读取是否已设置 Mock，之后的变化由监听更新
+        project.getMessageBus().connect(this).subscribe(FeignMockDataListener.TOPIC, (FeignMockDataListener) this::refresh);
+    }
+
+    public static MockSignatureRegistry getInstance(@NotNull Project project) {
+        return project.getService(MockSignatureRegistry.class);
+    }
+
+    /**
+     * 方法的签名，返回注册表中保存的同一个字符串实例
+     * 参数类型的规范文本依赖其他文件，缓存随 Java 结构变化失效，方法体内的编辑不影响
+     */
+    public String signatureOf(PsiMethod method) {
+        String signature = CachedValuesManager.getCachedValue(method, () -> CachedValueProvider.Result.create(
+                computeSignature(method),
+                PsiModificationTracker.getInstance(method.getProject()).forLanguage(JavaLanguage.INSTANCE)));
+        return signatureOf(idOf(signature));
+    }
+
+    public int idOf(PsiMethod method) {
+        return idOf(signatureOf(method));
+    }
+
+    private static String computeSignature(PsiMethod method) {
+        StringBuilder signature = new StringBuilder()
+                .append(Objects.requireNonNull(method.getContainingClass()).getQualifiedName())
+                .append('#')
+                .append(method.getName())
+                .append('(');
+        PsiParameter[] parameters = method.getParameterList().getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            if (i > 0) signature.append(',');
+            PsiType type = parameters[i].getType();
+            try {
+                signature.append(type.getCanonicalText());
+            } catch (Exception e) {
+                // 如果无法获取类型规范文本，则使用类型表示文本作为备选
+                signature.append(type.getPresentableText());
+            }
+        }
+        return signature.append(')').toString();
+    }
+
+    /**
+     * 获取签名的 id，首次出现或已被回收时分配新 id
+     */
+    public synchronized int idOf(String signature) {
+        Integer id = ids.get(signature);
+        if (id == null) {
+            id = nextId++;
+            ids.put(signature, id);
+            signatures.put(id, signature);
+            mocked.set(id, FeignMockData.getInstance(project).contains(signature));
+        }
+        touched.set(id);
+        return id;
+    }
+
+    /**
+     * @return id 已被回收时返回 null
+     */
+    public synchronized String signatureOf(int id) {
+        return signatures.get(id);
+    }
+
+    public synchronized boolean hasMock(int id) {
+        return mocked.get(id);
+    }
+
+    public ModificationTracker getRetainTracker() {
+        return retainTracker;
+    }
+
+    /**
+     * 回收不在 liveSignatures 中、未设置 Mock、且上次回收之后未被获取过的签名
+     *
+     * @param liveSignatures 当前树节点引用的签名
+     */
+    public void retain(Collection<String> liveSignatures) {
+        Set<String> live = new HashSet<>(liveSignatures);
+        FeignMockData feignMockData = FeignMockData.getInstance(project);
+        int removed = 0;
+        synchronized (this) {
+            Iterator<Map.Entry<Integer, String>> iterator = signatures.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Integer, String> entry = iterator.next();
+                int id = entry.getKey();
+                String signature = entry.getValue();
+                if (touched.get(id) || live.contains(signature) || feignMockData.contains(signature)) continue;
+                iterator.remove();
+                ids.remove(signature);
+                mocked.clear(id);
+                removed++;
+            }
+            touched.clear();
+        }
+        if (removed > 0) {
+            retainTracker.incModificationCount();
+        }
+    }
+
+    /**
+     * 在锁内读取存储的最新状态，先后到达的事件都以读取时的状态为准，不会被旧事件覆盖
+     */
+    private void refresh(Set<String> changed) {
+        FeignMockData feignMockData = FeignMockData.getInstance(project);
+        synchronized (this) {
+            for (String signature : changed) {
+                Integer id = ids.get(signature);
+                if (id != null) {
+                    mocked.set(id, feignMockData.contains(signature));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        // 订阅随服务释放
+    }
+}
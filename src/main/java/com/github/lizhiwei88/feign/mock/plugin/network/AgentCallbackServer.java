@@ -0,0 +1,170 @@
+package com.github.lizhiwei88.feign.mock.plugin.network;
+
+import com.github.lizhiwei88.feign.mock.plugin.common.FeignMockRuntimeManager;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Agent 就绪回调服务
+ * 插件在本地回环地址上监听，并通过 FeignAgentPatcher 把地址和实例 id 传给 Agent，
+ * Agent 在端点绑定完成后主动连接并发送一行就绪消息:
+ * <pre>
+ * ready instance=1a2b3c4d port=8080 channel=9090 features=gzip,binary
+ * </pre>
+ * 插件回复 ok 后关闭连接，随后在后台线程把对应实例切换为 RUNNING 并推送配置，无需轮询 ping。
+ * instance 为 FeignAgentPatcher 分配的实例 id，同时运行多个应用时据此区分，缺省时只在唯一一个实例启动中时归属该实例；
+ * channel 为可选的持久化帧通道地址（TCP 端口或 unix:/path/to/socket），缺省时只使用 HTTP；
+ * features 为 Agent 支持的请求体编码，缺省时只发送普通 JSON。
+ * 回调地址不可达时 Agent 改为写入握手文件，见 {@link AgentHandshakeWatcher}。
+ *
+ * @author lizhiwei
+ * @version 1.0
+ * @since 2026/01/20
+ */
+@Service(Service.Level.PROJECT)
+public final class AgentCallbackServer implements Disposable {
+
+    private static final Logger log = Logger.getInstance(AgentCallbackServer.class);
+
+    // 传给 Agent 的系统属性名
+    public static final String CALLBACK_PROPERTY = "feign.mock.callback";
+
+    // 传给 Agent 的实例 id 系统属性名，Agent 在就绪消息中原样回传
+    public static final String INSTANCE_PROPERTY = "feign.mock.instance";
+
+    // 单条回调消息的读取超时，防止异常连接占住监听线程
+    private static final int READ_TIMEOUT_MILLIS = 2000;
+
+    private final Project project;
+
+    private ServerSocket serverSocket;
+
+    public AgentCallbackServer(Project project) {
+        this.project = project;
+    }
+
+    public static AgentCallbackServer getInstance(@NotNull Project project) {
+        return project.getService(AgentCallbackServer.class);
+    }
+
+    /**
+     * 获取回调地址，首次调用时启动监听
+     *
+     * @return host:port，监听失败时返回 null
+     */
+    public synchronized String getAddress() {
+        if (serverSocket == null || serverSocket.isClosed()) {
+            try {
+                serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            } catch (IOException e) {
+                log.warn("Failed to open agent callback listener", e);
+                return null;
+            }
+            ServerSocket socket = serverSocket;
+            ApplicationManager.getApplication().executeOnPooledThread(() -> acceptLoop(socket));
+            log.info("Agent callback listener started on port " + socket.getLocalPort());
+        }
+        return serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop(ServerSocket socket) {
+        while (!socket.isClosed()) {
+            try (Socket client = socket.accept()) {
+                client.setSoTimeout(READ_TIMEOUT_MILLIS);
+                handle(client);
+            } catch (SocketException e) {
+                // 服务关闭时 accept 会抛出 SocketException，直接退出
+                if (!socket.isClosed()) {
+                    log.warn("Agent callback connection failed: " + e.getMessage());
+                }
+            } catch (Exception e) {
+                log.warn("Agent callback connection failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void handle(Socket client) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+        String line = reader.readLine();
+        if (line == null) return;
+
+        Map<String, String> attributes = parseReadyMessage(line);
+        if (attributes == null) {
+            log.warn("Unknown agent callback message: " + line);
+            return;
+        }
+
+        OutputStream out = client.getOutputStream();
+        out.write("ok\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+
+        log.info("Agent ready callback received: " + line);
+        // 推送配置可能较慢，交给线程池执行，监听线程只负责解析和应答，不阻塞其他实例的回调
+        AppExecutorUtil.getAppExecutorService().execute(() -> {
+            if (project.isDisposed()) return;
+            notifyReady(project, attributes);
+        });
+    }
+
+    /**
+     * 解析就绪消息，握手文件与回调使用相同格式
+     *
+     * @return 属性表，不是就绪消息时返回 null
+     */
+    static Map<String, String> parseReadyMessage(String line) {
+        String[] tokens = line.trim().split("\\s+");
+        if (!"ready".equals(tokens[0])) return null;
+        Map<String, String> attributes = new HashMap<>();
+        for (int i = 1; i < tokens.length; i++) {
+            int index = tokens[i].indexOf('=');
+            if (index > 0) {
+                attributes.put(tokens[i].substring(0, index), tokens[i].substring(index + 1));
+            }
+        }
+        return attributes;
+    }
+
+    static void notifyReady(Project project, Map<String, String> attributes) {
+        int port;
+        try {
+            port = Integer.parseInt(attributes.getOrDefault("port", "-1"));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid agent port: " + attributes.get("port"));
+            port = -1;
+        }
+        String features = attributes.get("features");
+        FeignMockRuntimeManager.getInstance(project).onAgentReady(attributes.get("instance"), port,
+                features == null ? List.of() : Arrays.asList(features.split(",")), attributes.get("channel"));
+    }
+
+    @Override
+    public synchronized void dispose() {
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                log.warn("Failed to close agent callback listener", e);
+            }
+            serverSocket = null;
+        }
+    }
+}
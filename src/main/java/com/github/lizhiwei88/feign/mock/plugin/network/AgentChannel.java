@@ -0,0 +1,254 @@
+package com.github.lizhiwei88.feign.mock.plugin.network;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.BufferExposingByteArrayOutputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 与 Agent 之间的持久化帧通道
+ * 每一帧为 4 字节大端长度 + UTF-8 JSON，请求携带自增 id，响应按 id 回填，允许多个请求同时在途:
+ * <pre>
+ * -> {"id":1,"op":"update","methodSignature":"...","json":"..."}
+ * <- {"id":1,"result":"OK"}
+ * </pre>
+ *
+ * @author lizhiwei
+ * @version 1.0
+ * @since 2026/01/21
+ */
+public class AgentChannel implements Closeable {
+
+    private static final Logger log = Logger.getInstance(AgentChannel.class);
+
+    // 与 HTTP 读取超时保持一致
+    private static final int REQUEST_TIMEOUT_MILLIS = 3000;
+
+    // 大请求按体积追加等待时间：每 KB 1 毫秒，Agent 需要逐条反序列化
+    private static final int PAYLOAD_BYTES_PER_MILLI = 1024;
+
+    // 按体积追加后的超时上限
+    private static final int MAX_REQUEST_TIMEOUT_MILLIS = 60_000;
+
+    // 单帧上限，防止异常数据导致分配超大数组
+    private static final int MAX_FRAME_SIZE = 64 * 1024 * 1024;
+
+    private final SocketChannel socketChannel;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    private final AtomicLong idGenerator = new AtomicLong();
+    private final Map<Long, CompletableFuture<JsonObject>> inFlight = new ConcurrentHashMap<>();
+
+    private volatile boolean closed;
+
+    private AgentChannel(SocketChannel socketChannel) {
+        this.socketChannel = socketChannel;
+        this.in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(socketChannel)));
+        this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(socketChannel)));
+    }
+
+    /**
+     * 建立通道并启动读取线程
+     */
+    public static AgentChannel open(SocketAddress address) throws IOException {
+        SocketChannel socketChannel = SocketChannel.open(address);
+        if (address instanceof InetSocketAddress) {
+            socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+        AgentChannel channel = new AgentChannel(socketChannel);
+        ApplicationManager.getApplication().executeOnPooledThread(channel::readLoop);
+        return channel;
+    }
+
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * 发送一帧并等待对应 id 的响应
+     *
+     * @throws SocketTimeoutException 等待响应超时，通道仍可继续使用
+     * @throws IOException            通道已断开
+     */
+    public JsonObject request(JsonObject message) throws IOException {
+        return request(message, REQUEST_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * 发送一帧并在指定时间内等待响应，用于批量等大请求
+     *
+     * @param timeoutMillis 见 {@link #requestTimeoutMillis(long)}
+     */
+    public JsonObject request(JsonObject message, int timeoutMillis) throws IOException {
+        return request((writer, id) -> {
+            message.addProperty("id", id);
+            writer.write(message.toString());
+        }, timeoutMillis);
+    }
+
+    /**
+     * 由调用方把请求直接编码进帧缓冲区，用于批量等大请求，不经过 JsonObject
+     *
+     * @throws FrameTooLargeException 帧超过上限，未发送，通道仍可继续使用
+     */
+    public JsonObject request(FrameEncoder encoder, int timeoutMillis) throws IOException {
+        if (closed) throw new IOException("Agent channel closed");
+
+        long id = idGenerator.incrementAndGet();
+        FrameBuffer frame = new FrameBuffer();
+        try (Writer writer = new OutputStreamWriter(frame, StandardCharsets.UTF_8)) {
+            encoder.write(writer, id);
+        }
+
+        CompletableFuture<JsonObject> future = new CompletableFuture<>();
+        inFlight.put(id, future);
+        try {
+            synchronized (out) {
+                out.writeInt(frame.size());
+                out.write(frame.getInternalBuffer(), 0, frame.size());
+                out.flush();
+            }
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new SocketTimeoutException("Agent channel request timed out");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for agent response", e);
+        } finally {
+            inFlight.remove(id);
+        }
+    }
+
+    /**
+     * 按请求体大小计算等待响应的超时时间，HTTP 批量请求同样使用
+     *
+     * @param payloadSize 请求体字符数
+     */
+    public static int requestTimeoutMillis(long payloadSize) {
+        long timeout = REQUEST_TIMEOUT_MILLIS + payloadSize / PAYLOAD_BYTES_PER_MILLI;
+        return (int) Math.min(timeout, MAX_REQUEST_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * 把请求编码为帧内容，id 由通道分配，必须写入请求中
+     */
+    @FunctionalInterface
+    public interface FrameEncoder {
+        void write(Writer out, long id) throws IOException;
+    }
+
+    /**
+     * 请求帧超过 {@link #MAX_FRAME_SIZE}，Agent 会拒绝读取，调用方应改用 HTTP
+     */
+    public static class FrameTooLargeException extends IOException {
+        FrameTooLargeException() {
+            super("Agent channel frame exceeds " + MAX_FRAME_SIZE + " bytes");
+        }
+    }
+
+    /**
+     * 帧缓冲区，写入时检查大小，超过上限立即停止编码，不再继续分配
+     */
+    private static final class FrameBuffer extends OutputStream {
+
+        private final BufferExposingByteArrayOutputStream buffer = new BufferExposingByteArrayOutputStream();
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureCapacity(1);
+            buffer.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureCapacity(len);
+            buffer.write(b, off, len);
+        }
+
+        private void ensureCapacity(int len) throws FrameTooLargeException {
+            if ((long) buffer.size() + len > MAX_FRAME_SIZE) throw new FrameTooLargeException();
+        }
+
+        int size() {
+            return buffer.size();
+        }
+
+        byte[] getInternalBuffer() {
+            return buffer.getInternalBuffer();
+        }
+    }
+
+    private void readLoop() {
+        try {
+            while (!closed) {
+                int length = in.readInt();
+                if (length < 0 || length > MAX_FRAME_SIZE) {
+                    throw new IOException("Invalid frame length: " + length);
+                }
+                byte[] frame = new byte[length];
+                in.readFully(frame);
+                dispatch(new String(frame, StandardCharsets.UTF_8));
+            }
+        } catch (IOException | RuntimeException e) {
+            if (!closed) {
+                log.info("Agent channel disconnected: " + e.getMessage());
+            }
+        } finally {
+            close();
+        }
+    }
+
+    private void dispatch(String frame) {
+        JsonElement element = JsonParser.parseString(frame);
+        if (!element.isJsonObject()) return;
+        JsonObject response = element.getAsJsonObject();
+        JsonElement id = response.get("id");
+        if (id == null) return;
+        CompletableFuture<JsonObject> future = inFlight.get(id.getAsLong());
+        if (future != null) {
+            future.complete(response);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            socketChannel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close agent channel", e);
+        }
+        IOException cause = new IOException("Agent channel closed");
+        inFlight.values().forEach(future -> future.completeExceptionally(cause));
+    }
+}
@@ -0,0 +1,285 @@
+package com.github.lizhiwei88.feign.mock.plugin.network;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 单个 Agent 实例的连接端点
+ * 持有该实例的 HTTP 端口、支持的编码和持久化通道，通道不可用时自动回退到 HTTP
+ * Linux/macOS 下优先使用 Unix Domain Socket，绕开回环 TCP 协议栈和端口发现
+ *
+ * @author lizhiwei
+ * @version 1.0
+ * @since 2026/01/21
+ */
+public final class AgentEndpoint implements AgentTransport {
+
+    private static final Logger log = Logger.getInstance(AgentEndpoint.class);
+
+    // 传给 Agent 的 Unix Domain Socket 路径系统属性名
+    public static final String SOCKET_PROPERTY = "feign.mock.socket";
+
+    private static final String UNIX_CHANNEL_PREFIX = "unix:";
+
+    // sockaddr_un.sun_path 大小，包含结尾的 NUL
+    private static final int MAC_SUN_PATH_SIZE = 104;
+    private static final int LINUX_SUN_PATH_SIZE = 108;
+
+    // 旧版 Agent 对未知操作的应答
+    private static final String UNSUPPORTED_RESULT = "unsupported";
+
+    private final Project project;
+
+    private volatile int port = -1;
+
+    private volatile Set<String> features = Set.of();
+
+    private volatile AgentChannel channel;
+
+    // 当前通道对应的 Agent 声明地址
+    private volatile String channelAddress;
+
+    public AgentEndpoint(@NotNull Project project) {
+        this.project = project;
+    }
+
+    /**
+     * 本机 Unix Domain Socket 文件路径，由 FeignAgentPatcher 传给 Agent 绑定，每个实例一个
+     *
+     * @return 当前平台不支持或路径超出 sun_path 长度时返回 null，继续使用 TCP
+     */
+    public static Path getSocketPath(Project project, String instanceId) {
+        if (!SystemInfo.isUnix) return null;
+        // sun_path 长度有限，使用短文件名
+        Path path = Path.of(FileUtil.getTempDirectory(), "feign-mock-" + project.getLocationHash() + "-" + instanceId + ".sock");
+        // 超长时 Agent 无法绑定，不传递该路径
+        int maxLength = (SystemInfo.isMac ? MAC_SUN_PATH_SIZE : LINUX_SUN_PATH_SIZE) - 1;
+        if (path.toString().getBytes(StandardCharsets.UTF_8).length > maxLength) {
+            log.info("Socket path exceeds " + maxLength + " bytes, fallback to tcp: " + path);
+            return null;
+        }
+        return path;
+    }
+
+    /**
+     * @return Agent HTTP 端口，未知时为 -1
+     */
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public Set<String> getFeatures() {
+        return features;
+    }
+
+    /**
+     * 记录 Agent 支持的编码，旧版 Agent 未声明时只使用普通 JSON
+     */
+    public void setFeatures(Collection<String> features) {
+        this.features = Set.copyOf(features);
+    }
+
+    /**
+     * 按 Agent 声明的通道地址建立连接
+     *
+     * @param channel TCP 端口，或 unix:/path/to/socket
+     */
+    public void connect(String channel) {
+        // 回调和握手文件可能先后报告同一地址，已连接时无需重连
+        if (channel.equals(channelAddress) && isConnected()) return;
+        channelAddress = channel;
+        if (channel.startsWith(UNIX_CHANNEL_PREFIX)) {
+            connect(UnixDomainSocketAddress.of(channel.substring(UNIX_CHANNEL_PREFIX.length())));
+            return;
+        }
+        try {
+            connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(channel)));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid agent channel address: " + channel);
+        }
+    }
+
+    /**
+     * 建立持久化通道，失败时保持 HTTP 传输
+     */
+    public synchronized void connect(SocketAddress address) {
+        disconnect();
+        try {
+            channel = AgentChannel.open(address);
+            log.info("Agent channel connected: " + address);
+        } catch (IOException e) {
+            log.warn("Failed to connect agent channel " + address + ", fallback to http: " + e.getMessage());
+        }
+    }
+
+    public synchronized void disconnect() {
+        AgentChannel current = channel;
+        channel = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    public boolean isConnected() {
+        AgentChannel current = channel;
+        return current != null && current.isOpen();
+    }
+
+    /**
+     * 实例停止后释放通道并清空协商结果
+     */
+    public void close() {
+        disconnect();
+        features = Set.of();
+    }
+
+    @Override
+    public String sendUpdate(String signature, String json, long version) {
+        JsonObject message = message("update", signature);
+        message.addProperty("json", AgentPayloadEncoder.minify(json));
+        message.addProperty("version", version);
+        String result = requestResult(message);
+        return result != null ? result : http().sendUpdate(this, signature, json, version);
+    }
+
+    @Override
+    public String sendClear(String signature, long version) {
+        JsonObject message = message("delete", signature);
+        message.addProperty("version", version);
+        String result = requestResult(message);
+        return result != null ? result : http().sendClear(this, signature, version);
+    }
+
+    @Override
+    public String sendPing() {
+        String result = requestResult(message("ping", null));
+        return result != null ? result : http().sendPing(this);
+    }
+
+    @Override
+    public Map<String, String> sendBatchUpdate(Map<String, String> mocks, long version) {
+        AgentChannel current = channel;
+        if (current == null || !current.isOpen()) {
+            return http().sendBatchUpdate(this, mocks, version);
+        }
+        long size = mocks.values().stream().mapToLong(json -> json == null ? 0 : json.length()).sum();
+        try {
+            // 压缩和转义直接写入帧缓冲区，与 HTTP 请求体使用同一编码
+            JsonObject response = current.request((writer, id) -> AgentPayloadEncoder.writeBatchFrame(writer, id, version, mocks),
+                    AgentChannel.requestTimeoutMillis(size));
+            Map<String, String> results = toResultMap(response.get("results"));
+            if (results != null) return results;
+            if (isUnsupported(response)) return null;
+            return AgentHttpClient.errorResults(mocks.keySet(), "Error: invalid batch response");
+        } catch (SocketTimeoutException e) {
+            return AgentHttpClient.errorResults(mocks.keySet(), "Error: " + e.getMessage());
+        } catch (AgentChannel.FrameTooLargeException e) {
+            // 超过帧上限的批量请求改用 HTTP 流式发送，通道保持可用
+            log.info("Batch exceeds channel frame limit, send over http: " + mocks.size() + " items");
+            return http().sendBatchUpdate(this, mocks, version);
+        } catch (IOException e) {
+            onChannelFailure(current, e);
+            return http().sendBatchUpdate(this, mocks, version);
+        }
+    }
+
+    @Override
+    public Map<String, String> fetchManifest() {
+        AgentChannel current = channel;
+        if (current == null || !current.isOpen()) {
+            return http().fetchManifest(this);
+        }
+        try {
+            return toResultMap(current.request(message("manifest", null)).get("results"));
+        } catch (SocketTimeoutException e) {
+            return null;
+        } catch (IOException e) {
+            onChannelFailure(current, e);
+            return http().fetchManifest(this);
+        }
+    }
+
+    /**
+     * Agent 明确回复不支持该操作，只有这种情况才回退到逐条发送
+     */
+    private static boolean isUnsupported(JsonObject response) {
+        JsonElement result = response.get("result");
+        return result != null && result.isJsonPrimitive()
+                && StringUtil.containsIgnoreCase(result.getAsString(), UNSUPPORTED_RESULT);
+    }
+
+    private static Map<String, String> toResultMap(JsonElement results) {
+        if (results == null || !results.isJsonObject()) return null;
+        Map<String, String> resultMap = new LinkedHashMap<>();
+        results.getAsJsonObject().entrySet().forEach(entry ->
+                resultMap.put(entry.getKey(), entry.getValue().isJsonNull() ? null : entry.getValue().getAsString()));
+        return resultMap;
+    }
+
+    /**
+     * 通过通道发送请求
+     *
+     * @return Agent 返回结果；通道不可用时返回 null，由调用方回退到 HTTP
+     */
+    private String requestResult(JsonObject message) {
+        AgentChannel current = channel;
+        if (current == null || !current.isOpen()) return null;
+        try {
+            JsonElement result = current.request(message).get("result");
+            return result == null || result.isJsonNull() ? "" : result.getAsString();
+        } catch (SocketTimeoutException e) {
+            return "Error: " + e.getMessage();
+        } catch (AgentChannel.FrameTooLargeException e) {
+            // 未发送，通道保持可用，由调用方改用 HTTP
+            return null;
+        } catch (IOException e) {
+            onChannelFailure(current, e);
+            return null;
+        }
+    }
+
+    private void onChannelFailure(AgentChannel failed, IOException e) {
+        log.warn("Agent channel failed, fallback to http: " + e.getMessage());
+        synchronized (this) {
+            if (channel == failed) {
+                disconnect();
+            }
+        }
+    }
+
+    private static JsonObject message(String op, String signature) {
+        JsonObject message = new JsonObject();
+        message.addProperty("op", op);
+        if (signature != null) {
+            message.addProperty("methodSignature", signature);
+        }
+        return message;
+    }
+
+    private AgentHttpClient http() {
+        return AgentHttpClient.getInstance(project);
+    }
+}
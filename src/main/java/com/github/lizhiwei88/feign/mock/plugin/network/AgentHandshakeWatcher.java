@@ -0,0 +1,176 @@
+package com.github.lizhiwei88.feign.mock.plugin.network;
+
+import com.github.lizhiwei88.feign.mock.plugin.common.FeignMockRuntimeManager;
+import com.github.lizhiwei88.feign.mock.plugin.settings.FeignMockSettingFileReload;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+
+/**
+ * Agent 握手文件监听
+ * FeignAgentPatcher 为每个实例分配一个握手文件路径，Agent 无法回调时把就绪消息写入该文件:
+ * 先写 &lt;path&gt;.tmp 再原子重命名为 &lt;path&gt;，内容与就绪回调相同（见 {@link AgentCallbackServer}）。
+ * 同时监听 .idea/feign_mock_settings.xml，兼容只写入端口的旧版 Agent。
+ * 文件变化前不做任何 IO，变化后立即处理。
+ *
+ * @author lizhiwei
+ * @version 1.0
+ * @since 2026/01/27
+ */
+@Service(Service.Level.PROJECT)
+public final class AgentHandshakeWatcher implements Disposable {
+
+    private static final Logger log = Logger.getInstance(AgentHandshakeWatcher.class);
+
+    // 传给 Agent 的握手文件路径系统属性名
+    public static final String HANDSHAKE_PROPERTY = "feign.mock.handshake";
+
+    private static final String HANDSHAKE_SUFFIX = ".ready";
+
+    private static final String LEGACY_SETTINGS_FILE = "feign_mock_settings.xml";
+
+    private final Project project;
+
+    private WatchService watchService;
+
+    private Path handshakeDirectory;
+
+    public AgentHandshakeWatcher(Project project) {
+        this.project = project;
+    }
+
+    public static AgentHandshakeWatcher getInstance(@NotNull Project project) {
+        return project.getService(AgentHandshakeWatcher.class);
+    }
+
+    /**
+     * 获取实例的握手文件路径，首次调用时启动监听，并清理上次运行残留的文件
+     *
+     * @return 监听失败时返回 null
+     */
+    public synchronized Path getHandshakeFile(String instanceId) {
+        if (watchService == null && !start()) return null;
+        Path file = handshakeDirectory.resolve(instanceId + HANDSHAKE_SUFFIX);
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete stale handshake file: " + file, e);
+        }
+        return file;
+    }
+
+    private boolean start() {
+        try {
+            handshakeDirectory = Files.createDirectories(Path.of(FileUtil.getTempDirectory(), "feign-mock-" + project.getLocationHash()));
+            watchService = FileSystems.getDefault().newWatchService();
+            handshakeDirectory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            if (project.getBasePath() != null) {
+                Path ideaDirectory = Path.of(project.getBasePath(), ".idea");
+                if (Files.isDirectory(ideaDirectory)) {
+                    ideaDirectory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to watch agent handshake directory", e);
+            closeWatchService();
+            return false;
+        }
+        WatchService service = watchService;
+        ApplicationManager.getApplication().executeOnPooledThread(() -> watchLoop(service));
+        log.info("Agent handshake watcher started on " + handshakeDirectory);
+        return true;
+    }
+
+    private void watchLoop(WatchService service) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                // 服务关闭，直接退出
+                return;
+            }
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) continue;
+                Path name = (Path) event.context();
+                try {
+                    handle(directory, name.toString());
+                } catch (Exception e) {
+                    log.warn("Failed to handle agent handshake file " + name + ": " + e.getMessage());
+                }
+            }
+            key.reset();
+        }
+    }
+
+    private void handle(Path directory, String fileName) throws IOException {
+        if (project.isDisposed()) return;
+        if (LEGACY_SETTINGS_FILE.equals(fileName)) {
+            FeignMockSettingFileReload.parseExternalXml(project);
+            FeignMockRuntimeManager.getInstance(project).onLegacyPortChanged();
+            return;
+        }
+        if (!directory.equals(handshakeDirectory) || !fileName.endsWith(HANDSHAKE_SUFFIX)) return;
+
+        Path file = directory.resolve(fileName);
+        String content;
+        try {
+            content = Files.readString(file, StandardCharsets.UTF_8);
+            // 已读取的握手文件不再保留，Agent 重新绑定时会再次写入
+            Files.deleteIfExists(file);
+        } catch (NoSuchFileException e) {
+            // 同一次写入可能触发多个事件，文件已被处理
+            return;
+        }
+        Map<String, String> attributes = AgentCallbackServer.parseReadyMessage(content);
+        if (attributes == null) {
+            log.warn("Unknown agent handshake content: " + content);
+            return;
+        }
+        log.info("Agent handshake file received: " + content.trim());
+        attributes.putIfAbsent("instance", fileName.substring(0, fileName.length() - HANDSHAKE_SUFFIX.length()));
+        // 推送配置可能较慢，交给线程池执行，不阻塞其他实例的握手文件和设置文件变化事件
+        AppExecutorUtil.getAppExecutorService().execute(() -> {
+            if (project.isDisposed()) return;
+            AgentCallbackServer.notifyReady(project, attributes);
+        });
+    }
+
+    private void closeWatchService() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("Failed to close agent handshake watcher", e);
+            }
+            watchService = null;
+        }
+    }
+
+    @Override
+    public synchronized void dispose() {
+        closeWatchService();
+    }
+}
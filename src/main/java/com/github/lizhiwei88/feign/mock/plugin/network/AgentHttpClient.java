@@ -1,27 +1,52 @@
 package com.github.lizhiwei88.feign.mock.plugin.network;
 
-import com.github.lizhiwei88.feign.mock.plugin.settings.FeignMockSettings;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.entity.GzipCompressingEntity;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.EntityTemplate;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.util.EntityUtils;
+import org.jetbrains.annotations.NotNull;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import java.util.Objects;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * AgentHttpClient
+ * 项目级服务，持有到各 Agent 端口的长连接池，随项目关闭一起释放
+ * 端口和编码能力由调用方传入的 {@link AgentEndpoint} 决定
  *
  * @author lizhiwei
  * @version 1.0
  * @since 2025/12/25
  */
-public class AgentHttpClient {
+@Service(Service.Level.PROJECT)
+public final class AgentHttpClient implements Disposable {
+
+    private static final Logger log = Logger.getInstance(AgentHttpClient.class);
 
     // 配置超时时间 (单位: 毫秒)
     // ConnectTimeout: 2秒连接超时
@@ -32,71 +57,226 @@ public class AgentHttpClient {
             .setSocketTimeout(3000)
             .build();
 
+    // 每个 Agent 只有一个本地端口，少量连接即可满足并发发送
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 8;
+
+    // 同时运行的多个实例共享连接池
+    private static final int MAX_CONNECTIONS = 32;
+
+    // 空闲连接保活时间，Agent 未返回 Keep-Alive 头时使用
+    private static final long KEEP_ALIVE_MILLIS = 30_000;
+
+    // 连接空闲超过该时间后复用前先校验，避免应用重启后拿到失效连接
+    private static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 1000;
+
+    private static final ConnectionKeepAliveStrategy KEEP_ALIVE_STRATEGY = (response, context) -> {
+        long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+        return duration > 0 ? duration : KEEP_ALIVE_MILLIS;
+    };
+
+    // 请求体超过该字符数时启用压缩编码
+    private static final int COMPACT_THRESHOLD = 16 * 1024;
+
+    // Agent 在就绪回调中声明支持的编码
+    public static final String FEATURE_GZIP = "gzip";
+    public static final String FEATURE_BINARY = "binary";
+
+    // 版本号放在请求头中，旧版 Agent 会直接忽略
+    private static final String VERSION_HEADER = "X-Feign-Mock-Version";
+
+    private static final ContentType BINARY_CONTENT_TYPE = ContentType.create("application/x-feign-mock-binary");
+
+    private final CloseableHttpClient httpClient;
+
+    public AgentHttpClient() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(MAX_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(REQUEST_CONFIG)
+                .setKeepAliveStrategy(KEEP_ALIVE_STRATEGY)
+                .evictExpiredConnections()
+                .evictIdleConnections(KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    public static AgentHttpClient getInstance(@NotNull Project project) {
+        return project.getService(AgentHttpClient.class);
+    }
+
     /**
      * 发送 update 请求（POST）
      */
-    public static String sendUpdate(Project project, String signature, String json) {
-        return sendPost(project, "update", signature, json);
+    public String sendUpdate(AgentEndpoint endpoint, String signature, String json, long version) {
+        return sendPost(endpoint, "update", signature, json, version);
     }
 
     /**
      * 发送 delete 请求（POST）
      */
-    public static String sendClear(Project project, String signature) {
-        return sendPost(project, "delete", signature, "");
+    public String sendClear(AgentEndpoint endpoint, String signature, long version) {
+        return sendPost(endpoint, "delete", signature, "", version);
+    }
+
+    /**
+     * 发送 batch 请求（POST），一次请求推送多个 Mock 数据
+     * 请求体: {"items":[{"methodSignature":"...","json":"..."}]}，版本号见 X-Feign-Mock-Version 请求头
+     * 响应体: {"methodSignature":"OK", ...}
+     *
+     * @param mocks 签名 -> JSON
+     * @return 每个签名的处理结果，超时或连接失败时每个签名记为 Error；只有 Agent 返回 404 时返回 null
+     */
+    public Map<String, String> sendBatchUpdate(AgentEndpoint endpoint, Map<String, String> mocks, long version) {
+        int port = endpoint.getPort();
+        if (port == -1) return errorResults(mocks.keySet(), "Spring Boot application not started.");
+        String url = "http://localhost:" + port + "/batch";
+        HttpPost post = new HttpPost(url);
+        post.setHeader(VERSION_HEADER, String.valueOf(version));
+        // 边序列化边写入请求体，避免拼接完整的大字符串
+        int size = mocks.values().stream().mapToInt(json -> json == null ? 0 : json.length()).sum();
+        post.setEntity(compress(endpoint, jsonEntity(writer -> AgentPayloadEncoder.writeBatch(writer, mocks)), size));
+        // 批量请求体积不定，读取超时随大小增加
+        post.setConfig(RequestConfig.copy(REQUEST_CONFIG).setSocketTimeout(AgentChannel.requestTimeoutMillis(size)).build());
+        try (CloseableHttpResponse response = httpClient.execute(post)) {
+            String body = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode == HttpStatus.SC_NOT_FOUND) {
+                log.info("Agent does not support batch update, status: " + response.getStatusLine());
+                return null;
+            }
+            if (statusCode != HttpStatus.SC_OK) {
+                return errorResults(mocks.keySet(), "Error: " + response.getStatusLine());
+            }
+            Map<String, String> results = parseResultMap(body);
+            return results != null ? results : errorResults(mocks.keySet(), "Error: invalid batch response");
+        } catch (Exception e) {
+            log.warn("Batch update failed: " + e.getMessage());
+            return errorResults(mocks.keySet(), "Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 整批失败时每个签名记同一个错误，交给同步队列重试
+     */
+    static Map<String, String> errorResults(Collection<String> signatures, String error) {
+        Map<String, String> results = new LinkedHashMap<>();
+        signatures.forEach(signature -> results.put(signature, error));
+        return results;
+    }
+
+    private static Map<String, String> parseResultMap(String body) {
+        JsonElement element = JsonParser.parseString(body);
+        if (!element.isJsonObject()) return null;
+        JsonObject object = element.getAsJsonObject();
+        Map<String, String> result = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+            JsonElement value = entry.getValue();
+            result.put(entry.getKey(), value.isJsonNull() ? null : value.getAsString());
+        }
+        return result;
+    }
+
+    /**
+     * 获取 Agent 持有的 Mock 摘要（GET）
+     * 响应体: {"methodSignature":"sha256", ...}
+     */
+    public Map<String, String> fetchManifest(AgentEndpoint endpoint) {
+        int port = endpoint.getPort();
+        if (port == -1) return null;
+        String url = "http://localhost:" + port + "/manifest";
+        HttpGet get = new HttpGet(url);
+        try (CloseableHttpResponse response = httpClient.execute(get)) {
+            String body = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+            if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+                log.info("Agent does not support manifest, status: " + response.getStatusLine());
+                return null;
+            }
+            return parseResultMap(body);
+        } catch (Exception e) {
+            log.warn("Fetch manifest failed: " + e.getMessage());
+            return null;
+        }
     }
 
     /**
      * 发送 ping 请求（GET）
      */
-    public static String sendPing(Project project) {
-        return sendGet(project, "ping");
+    public String sendPing(AgentEndpoint endpoint) {
+        return sendGet(endpoint, "ping");
     }
 
-    private static String sendPost(Project project, String api, String signature, String json) {
-        int port = getPort(project);
+    private String sendPost(AgentEndpoint endpoint, String api, String signature, String json, long version) {
+        int port = endpoint.getPort();
         if (port == -1) return "Spring Boot application not started.";
         String url = "http://localhost:" + port + "/" + api;
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
-            HttpPost post = new HttpPost(url);
-            post.setConfig(REQUEST_CONFIG);
-            String cleanedJson = cleanJsonFormatting(json);
-            String payload = String.format("{\"methodSignature\":\"%s\", \"json\":\"%s\"}", signature, cleanedJson == null ? "" : cleanedJson.replace("\"", "\\\""));
-            post.setEntity(new StringEntity(payload, StandardCharsets.UTF_8));
-            post.setHeader("Content-Type", "application/json");
-            try (CloseableHttpResponse response = client.execute(post)) {
-                return EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
-            }
+        HttpPost post = new HttpPost(url);
+        post.setHeader(VERSION_HEADER, String.valueOf(version));
+        int size = json == null ? 0 : json.length();
+        HttpEntity entity;
+        if (size >= COMPACT_THRESHOLD && endpoint.getFeatures().contains(FEATURE_BINARY)) {
+            EntityTemplate binaryEntity = new EntityTemplate(outputStream -> AgentPayloadEncoder.writeBinary(outputStream, signature, json));
+            binaryEntity.setContentType(BINARY_CONTENT_TYPE.toString());
+            entity = binaryEntity;
+        } else {
+            entity = jsonEntity(writer -> AgentPayloadEncoder.writeEnvelope(writer, signature, json));
+        }
+        post.setEntity(compress(endpoint, entity, size));
+        try (CloseableHttpResponse response = httpClient.execute(post)) {
+            // 必须完整读取响应体，连接才能归还到连接池
+            return EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
         } catch (Exception e) {
             return "Error: " + e.getMessage();
         }
     }
 
-    private static String sendGet(Project project, String api) {
-        int port = getPort(project);
+    private String sendGet(AgentEndpoint endpoint, String api) {
+        int port = endpoint.getPort();
         if (port == -1) return "Spring Boot application not started.";
         String url = "http://localhost:" + port + "/" + api;
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
-            HttpGet get = new HttpGet(url);
-            get.setConfig(REQUEST_CONFIG);
-            try (CloseableHttpResponse response = client.execute(get)) {
-                return EntityUtils.toString(response.getEntity(), "UTF-8");
-            }
+        HttpGet get = new HttpGet(url);
+        try (CloseableHttpResponse response = httpClient.execute(get)) {
+            return EntityUtils.toString(response.getEntity(), "UTF-8");
         } catch (Exception e) {
             return "Error: " + e.getMessage();
         }
     }
 
-
-    private static int getPort(Project project) {
-        return Objects.requireNonNull(FeignMockSettings.getInstance(project).getState()).lastKnownPort;
+    /**
+     * 请求体以流的方式写出，长度未知时使用 chunked 传输
+     */
+    private static EntityTemplate jsonEntity(PayloadWriter payloadWriter) {
+        EntityTemplate entity = new EntityTemplate(outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            payloadWriter.write(writer);
+            writer.flush();
+        });
+        entity.setContentType(ContentType.APPLICATION_JSON.toString());
+        return entity;
     }
 
     /**
-     * 清理 JSON 中多余的空白字符
+     * 大请求体且 Agent 支持时使用 gzip 压缩
      */
-    private static String cleanJsonFormatting(String input) {
-        if (input == null) return null;
-        return input.replaceAll("\\s+(?=([^\"]*\"[^\"]*\")*[^\"]*$)", " ").trim();
+    private static HttpEntity compress(AgentEndpoint endpoint, HttpEntity entity, int size) {
+        if (size >= COMPACT_THRESHOLD && endpoint.getFeatures().contains(FEATURE_GZIP)) {
+            return new GzipCompressingEntity(entity);
+        }
+        return entity;
+    }
+
+    @FunctionalInterface
+    private interface PayloadWriter {
+        void write(Writer writer) throws IOException;
+    }
+
+    @Override
+    public void dispose() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            log.warn("Failed to close agent http client", e);
+        }
     }
-}
\ No newline at end of file
+}
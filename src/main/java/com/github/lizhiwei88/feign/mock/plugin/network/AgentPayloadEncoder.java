@@ -0,0 +1,189 @@
+package com.github.lizhiwei88.feign.mock.plugin.network;
+
+import com.github.lizhiwei88.feign.mock.plugin.common.MockDataDigest;
+
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Agent 请求体编码器
+ * 单次遍历完成 JSON 压缩（去掉字符串外的空白）和字符串转义，直接写入请求体，不产生中间字符串
+ *
+ * @author lizhiwei
+ * @version 1.0
+ * @since 2026/01/22
+ */
+public final class AgentPayloadEncoder {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private AgentPayloadEncoder() {
+    }
+
+    /**
+     * 写入单条请求: {"methodSignature":"...","json":"..."}
+     */
+    public static void writeEnvelope(Writer out, String signature, String json) throws IOException {
+        out.write("{\"methodSignature\":");
+        writeString(out, signature);
+        out.write(",\"json\":");
+        writeMinifiedString(out, json);
+        out.write('}');
+    }
+
+    /**
+     * 写入批量请求: {"items":[{"methodSignature":"...","json":"..."}]}
+     */
+    public static void writeBatch(Writer out, Map<String, String> mocks) throws IOException {
+        out.write("{\"items\":");
+        writeItems(out, mocks);
+        out.write('}');
+    }
+
+    /**
+     * 写入帧通道批量请求: {"id":1,"op":"batch","version":1,"items":[...]}
+     */
+    public static void writeBatchFrame(Writer out, long id, long version, Map<String, String> mocks) throws IOException {
+        out.write("{\"id\":" + id + ",\"op\":\"batch\",\"version\":" + version + ",\"items\":");
+        writeItems(out, mocks);
+        out.write('}');
+    }
+
+    private static void writeItems(Writer out, Map<String, String> mocks) throws IOException {
+        out.write('[');
+        boolean first = true;
+        for (Map.Entry<String, String> entry : mocks.entrySet()) {
+            if (!first) out.write(',');
+            first = false;
+            writeEnvelope(out, entry.getKey(), entry.getValue());
+        }
+        out.write(']');
+    }
+
+    /**
+     * 压缩 JSON 文本，用于需要完整字符串的场景（如帧通道）
+     */
+    public static String minify(String json) {
+        if (json == null) return "";
+        StringBuilder builder = new StringBuilder(json.length());
+        try {
+            minify(json, builder, false);
+        } catch (IOException e) {
+            // StringBuilder 不会抛出 IOException
+            throw new IllegalStateException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 把 JSON 文本压缩后原样写出（不转义），用于二进制编码
+     */
+    public static void writeMinified(Writer out, String json) throws IOException {
+        if (json != null) {
+            minify(json, out, false);
+        }
+    }
+
+    /**
+     * 二进制编码: [4字节签名长度][签名 UTF-8][压缩后的 JSON UTF-8 直到请求体结束]
+     * JSON 不再嵌套为字符串字面量，省去转义带来的体积膨胀
+     */
+    public static void writeBinary(OutputStream out, String signature, String json) throws IOException {
+        byte[] signatureBytes = signature.getBytes(StandardCharsets.UTF_8);
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(signatureBytes.length);
+        data.write(signatureBytes);
+        data.flush();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writeMinified(writer, json);
+        writer.flush();
+    }
+
+    /**
+     * 把 JSON 文本压缩后作为 JSON 字符串字面量写出（带引号）
+     */
+    public static void writeMinifiedString(Writer out, String json) throws IOException {
+        out.write('"');
+        if (json != null) {
+            minify(json, out, true);
+        }
+        out.write('"');
+    }
+
+    /**
+     * 普通字符串字面量（带引号）
+     */
+    public static void writeString(Writer out, String value) throws IOException {
+        out.write('"');
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                escape(out, value.charAt(i));
+            }
+        }
+        out.write('"');
+    }
+
+    /**
+     * 压缩规则与内容摘要一致，见 {@link MockDataDigest#minify(String, Appendable)}
+     *
+     * @param escape 是否对输出做 JSON 字符串转义
+     */
+    private static void minify(String json, Appendable out, boolean escape) throws IOException {
+        MockDataDigest.minify(json, escape ? escaping(out) : out);
+    }
+
+    /**
+     * 逐字符转义后写入目标
+     */
+    private static Appendable escaping(Appendable out) {
+        return new Appendable() {
+            @Override
+            public Appendable append(CharSequence csq) throws IOException {
+                return append(csq, 0, csq.length());
+            }
+
+            @Override
+            public Appendable append(CharSequence csq, int start, int end) throws IOException {
+                for (int i = start; i < end; i++) {
+                    escape(out, csq.charAt(i));
+                }
+                return this;
+            }
+
+            @Override
+            public Appendable append(char c) throws IOException {
+                escape(out, c);
+                return this;
+            }
+        };
+    }
+
+    private static void escape(Appendable out, char c) throws IOException {
+        switch (c) {
+            case '"' -> out.append("\\\"");
+            case '\\' -> out.append("\\\\");
+            case '\n' -> out.append("\\n");
+            case '\r' -> out.append("\\r");
+            case '\t' -> out.append("\\t");
+            case '\b' -> out.append("\\b");
+            case '\f' -> out.append("\\f");
+            default -> {
+                if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                    out.append("\\u")
+                            .append(HEX[(c >> 12) & 0xF])
+                            .append(HEX[(c >> 8) & 0xF])
+                            .append(HEX[(c >> 4) & 0xF])
+                            .append(HEX[c & 0xF]);
+                } else {
+                    out.append(c);
+                }
+            }
+        }
+    }
+}
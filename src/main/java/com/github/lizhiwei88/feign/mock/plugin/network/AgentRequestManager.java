@@ -1,17 +1,22 @@
 package com.github.lizhiwei88.feign.mock.plugin.network;
 
-import com.github.lizhiwei88.feign.mock.plugin.settings.FeignMockData;
-import com.intellij.openapi.application.ApplicationManager;
+import com.github.lizhiwei88.feign.mock.plugin.common.AgentInstance;
+import com.github.lizhiwei88.feign.mock.plugin.common.FeignMockRuntimeManager;
+import com.github.lizhiwei88.feign.mock.plugin.common.FeignMockSuspendTracker;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
-import com.intellij.xdebugger.XDebugSession;
-import com.intellij.xdebugger.XDebuggerManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
 
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * AgentRequestManager handles network requests with debug session awareness.
+ * Single-signature requests fan out to every running instance whose classpath contains the Feign client.
  *
  * @author lizhiwei
  * @version 1.0
@@ -25,96 +30,189 @@ public class AgentRequestManager {
 
     public static final String STATUS_SUSPENDED = "Suspended";
 
-    // Store signatures that need to be updated after resume
-    private static final Set<String> pendingSignatures = ConcurrentHashMap.newKeySet();
+    public static final String STATUS_NOT_STARTED = "Spring Boot application not started.";
 
     public static String sendUpdate(Project project, String signature, String json) {
-        if (isExecutionSuspended(project)) {
-            log.warn("Target application is suspended. Update request deferred for: " + signature);
-            pendingSignatures.add(signature);
+        return sendUpdate(project, signature, json, nextVersion(project));
+    }
+
+    /**
+     * @param version 读取 json 时获取的版本号，Agent 据此丢弃过期写入
+     */
+    public static String sendUpdate(Project project, String signature, String json, long version) {
+        return fanOut(project, signature, "OK", instance -> sendUpdate(project, instance, signature, json, version));
+    }
+
+    /**
+     * 只向指定实例发送更新
+     */
+    public static String sendUpdate(Project project, AgentInstance instance, String signature, String json, long version) {
+        if (isExecutionSuspended(project, instance)) {
+            log.warn("Target application " + instance + " is suspended. Update request deferred for: " + signature);
             return STATUS_SUSPENDED;
         }
-        return AgentHttpClient.sendUpdate(project, signature, json);
+        return instance.getEndpoint().sendUpdate(signature, json, version);
+    }
+
+    /**
+     * 并行发送更新到所有包含该 Feign Client 的运行实例，分别返回每个实例的结果
+     *
+     * @return 实例 -> 结果，没有实例需要该签名时为空
+     */
+    public static Map<AgentInstance, String> sendUpdateEach(Project project, String signature, String json, long version) {
+        return fanOutEach(targets(project, signature), instance -> sendUpdate(project, instance, signature, json, version));
     }
 
     public static String sendClear(Project project, String signature) {
-        if (isExecutionSuspended(project)) {
-            log.warn("Target application is suspended. Clear request deferred for: " + signature);
-            pendingSignatures.add(signature);
+        return sendClear(project, signature, nextVersion(project));
+    }
+
+    public static String sendClear(Project project, String signature, long version) {
+        return fanOut(project, signature, "Deleted", instance -> sendClear(project, instance, signature, version));
+    }
+
+    /**
+     * 并行发送删除到所有包含该 Feign Client 的运行实例，分别返回每个实例的结果
+     *
+     * @return 实例 -> 结果，没有实例需要该签名时为空
+     */
+    public static Map<AgentInstance, String> sendClearEach(Project project, String signature, long version) {
+        return fanOutEach(targets(project, signature), instance -> sendClear(project, instance, signature, version));
+    }
+
+    /**
+     * 只向指定实例发送删除
+     */
+    public static String sendClear(Project project, AgentInstance instance, String signature, long version) {
+        if (isExecutionSuspended(project, instance)) {
+            log.warn("Target application " + instance + " is suspended. Clear request deferred for: " + signature);
             return STATUS_SUSPENDED;
         }
-        return AgentHttpClient.sendClear(project, signature);
+        return instance.getEndpoint().sendClear(signature, version);
     }
 
-    public static String sendPing(Project project) {
-        if (isExecutionSuspended(project)) {
+    /**
+     * 批量推送 Mock 数据，Agent 明确不支持批量接口时逐条发送；超时等失败如实返回，由同步队列重试
+     *
+     * @param mocks   签名 -> JSON
+     * @param version 读取快照前获取的版本号
+     * @return 每个签名的处理结果
+     */
+    public static Map<String, String> sendBatchUpdate(Project project, AgentInstance instance, Map<String, String> mocks, long version) {
+        Map<String, String> results = new LinkedHashMap<>();
+        if (mocks.isEmpty()) return results;
+
+        if (isExecutionSuspended(project, instance)) {
+            log.warn("Target application " + instance + " is suspended. Batch update deferred for " + mocks.size() + " signatures");
+            mocks.keySet().forEach(signature -> results.put(signature, STATUS_SUSPENDED));
+            return results;
+        }
+
+        AgentTransport transport = instance.getEndpoint();
+        Map<String, String> batchResults = transport.sendBatchUpdate(mocks, version);
+        if (batchResults != null) {
+            // Agent 未返回结果的签名视为失败
+            mocks.keySet().forEach(signature -> results.put(signature, batchResults.getOrDefault(signature, "Error: no result")));
+            return results;
+        }
+
+        // 兼容不支持 batch 接口的旧版 Agent
+        log.info("Agent " + instance + " does not support batch update, sending " + mocks.size() + " signatures one by one");
+        mocks.forEach((signature, json) -> results.put(signature, transport.sendUpdate(signature, json, version)));
+        return results;
+    }
+
+    /**
+     * 获取 Agent 持有的 Mock 摘要
+     *
+     * @return 签名 -> 摘要；应用挂起或 Agent 不支持时返回 null
+     */
+    public static Map<String, String> fetchManifest(Project project, AgentInstance instance) {
+        if (isExecutionSuspended(project, instance)) {
+            return null;
+        }
+        return instance.getEndpoint().fetchManifest();
+    }
+
+    public static String sendPing(Project project, AgentInstance instance) {
+        if (isExecutionSuspended(project, instance)) {
             return STATUS_SUSPENDED;
         }
-        return AgentHttpClient.sendPing(project);
+        return instance.getEndpoint().sendPing();
     }
 
-    private static boolean isExecutionSuspended(Project project) {
-        if (project == null || project.isDisposed()) return false;
+    public static long nextVersion(Project project) {
+        return AgentSyncQueue.getInstance(project).nextVersion();
+    }
 
-        try {
-            XDebuggerManager debuggerManager = XDebuggerManager.getInstance(project);
-            if (debuggerManager == null) return false;
+    /**
+     * 并行发送到所有包含该 Feign Client 的运行实例，并合并结果：
+     * 任一实例失败返回该失败结果，其次任一实例挂起返回挂起，全部成功返回 success
+     *
+     * @param success 单个实例成功时的返回值，没有实例需要该签名时同样视为成功
+     */
+    private static String fanOut(Project project, String signature, String success, Function<AgentInstance, String> request) {
+        if (FeignMockRuntimeManager.getInstance(project).getRunningInstances().isEmpty()) return STATUS_NOT_STARTED;
+
+        String result = success;
+        for (String instanceResult : fanOutEach(targets(project, signature), request).values()) {
+            if (success.equals(instanceResult)) continue;
+            if (STATUS_SUSPENDED.equals(instanceResult)) {
+                if (success.equals(result)) result = instanceResult;
+            } else {
+                result = instanceResult;
+            }
+        }
+        return result;
+    }
 
-            XDebugSession[] sessions = debuggerManager.getDebugSessions();
-            for (XDebugSession session : sessions) {
-                if (session.isPaused()) {
-                    return true;
-                }
+    /**
+     * 运行中且 classpath 包含该签名所属 Feign Client 的实例
+     */
+    private static List<AgentInstance> targets(Project project, String signature) {
+        List<AgentInstance> targets = new ArrayList<>();
+        for (AgentInstance instance : FeignMockRuntimeManager.getInstance(project).getRunningInstances()) {
+            if (instance.containsClient(signature)) {
+                targets.add(instance);
             }
-        } catch (NoClassDefFoundError e) {
-            // In case XDebugger is not available (e.g. some minimalist IDE distributions)
-            log.warn("XDebuggerManager not found, skipping breakpoint detection.");
         }
-        return false;
+        return targets;
+    }
+
+    /**
+     * 多个实例时并行发送
+     *
+     * @return 实例 -> 结果，保持 targets 的顺序
+     */
+    private static Map<AgentInstance, String> fanOutEach(List<AgentInstance> targets, Function<AgentInstance, String> request) {
+        Map<AgentInstance, String> results = new LinkedHashMap<>();
+        if (targets.size() == 1) {
+            results.put(targets.get(0), request.apply(targets.get(0)));
+            return results;
+        }
+        Map<AgentInstance, CompletableFuture<String>> futures = new LinkedHashMap<>();
+        for (AgentInstance instance : targets) {
+            futures.put(instance, CompletableFuture.supplyAsync(() -> request.apply(instance), AppExecutorUtil.getAppExecutorService()));
+        }
+        futures.forEach((instance, future) -> results.put(instance, future.join()));
+        return results;
+    }
+
+    /**
+     * 暂停状态由 FeignMockDebugListener 实时维护，只判断目标实例所在的进程
+     */
+    private static boolean isExecutionSuspended(Project project, AgentInstance instance) {
+        if (project == null || project.isDisposed()) return false;
+        FeignMockSuspendTracker tracker = FeignMockSuspendTracker.getInstance(project);
+        return tracker.isAnySuspended() && tracker.isSuspended(instance.getProcessHandler());
     }
 
     /**
      * Replays pending requests when execution resumes.
-     * Guaranteed to run on background thread.
+     * Deferred signatures are tracked per instance by {@link AgentSyncQueue}, each replayed only to the instance that missed it.
      */
     public static void processPendingRequests(Project project) {
-        if (pendingSignatures.isEmpty()) return;
-
-        log.info("Processing " + pendingSignatures.size() + " pending requests...");
-
-        // Execute in background to avoid blocking critical threads
-        ApplicationManager.getApplication().executeOnPooledThread(() -> {
-            FeignMockData feignMockData = FeignMockData.getInstance(project);
-            if (feignMockData == null) return;
-
-            // Iterate over a copy or iterator to avoid ConcurrentModification if new items added (unlikely during resume processing but safe)
-            // However, we can just iterate the set. Since we are in a resumed state, we assume requests can go through.
-            // But if it suspends again quickly, we might add more.
-
-            Set<String> processed = ConcurrentHashMap.newKeySet();
-
-            for (String signature : pendingSignatures) {
-                String currentJson = feignMockData.get(signature);
-                String result;
-
-                if (currentJson != null) {
-                    // It exists in data, so it was an update (or create)
-                    log.info("Replaying Update for: " + signature);
-                    result = AgentHttpClient.sendUpdate(project, signature, currentJson);
-                } else {
-                    // It does not exist, so it was a deleted
-                    log.info("Replaying Clear for: " + signature);
-                    result = AgentHttpClient.sendClear(project, signature);
-                }
-
-                // If successful or effectively processed, remove from pending
-                // We don't want to infinite loop if it fails, so we remove it anyway?
-                // Or maybe keep it if failed? For now, remove to avoid stuck queue.
-                processed.add(signature);
-            }
-
-            pendingSignatures.removeAll(processed);
-            log.info("Pending requests processed.");
-        });
+        if (project == null || project.isDisposed()) return;
+        AgentSyncQueue.getInstance(project).replayPending();
     }
 }
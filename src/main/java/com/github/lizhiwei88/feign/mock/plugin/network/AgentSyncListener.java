@@ -0,0 +1,22 @@
+package com.github.lizhiwei88.feign.mock.plugin.network;
+
+import com.intellij.util.messages.Topic;
+
+/**
+ * Mock 同步状态监听
+ *
+ * @author lizhiwei
+ * @version 1.0
+ * @since 2026/01/24
+ */
+public interface AgentSyncListener {
+
+    Topic<AgentSyncListener> TOPIC = Topic.create("Feign Mock Sync", AgentSyncListener.class);
+
+    /**
+     * 尚未同步到 Agent 的签名数量变化，可能在后台线程回调
+     *
+     * @param count 应用挂起或发送失败而等待重放的签名数量，同一签名在多个实例上未同步只计一次
+     */
+    void unsyncedCountChanged(int count);
+}
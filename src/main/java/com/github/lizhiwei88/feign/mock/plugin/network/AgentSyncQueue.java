@@ -0,0 +1,247 @@
+package com.github.lizhiwei88.feign.mock.plugin.network;
+
+import com.github.lizhiwei88.feign.mock.plugin.common.AgentInstance;
+import com.github.lizhiwei88.feign.mock.plugin.common.FeignMockRuntimeManager;
+import com.github.lizhiwei88.feign.mock.plugin.common.StartupStatus;
+import com.github.lizhiwei88.feign.mock.plugin.notifications.NotificationUtil;
+import com.github.lizhiwei88.feign.mock.plugin.settings.FeignMockData;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mock 数据同步队列
+ * 单线程按提交顺序发送，同一签名在发送前的多次提交合并为一次（以发送时的最新数据为准），
+ * 每次发送携带单调递增的版本号，Agent 据此丢弃乱序到达的旧数据。
+ * 应用挂起或发送失败的签名按 (实例, 签名) 记为未同步：失败的按指数退避重试，挂起的在恢复运行后并行重放，
+ * 重放只发往错过该次更新的实例；实例停止后只丢弃该实例的记录。
+ *
+ * @author lizhiwei
+ * @version 1.0
+ * @since 2026/01/23
+ */
+@Service(Service.Level.PROJECT)
+public final class AgentSyncQueue implements Disposable {
+
+    private static final Logger log = Logger.getInstance(AgentSyncQueue.class);
+
+    // 重放并发数，避免恢复运行时瞬间压垮 Agent
+    private static final int REPLAY_PARALLELISM = 4;
+
+    private static final long RETRY_BASE_DELAY_MILLIS = 500;
+
+    private static final long RETRY_MAX_DELAY_MILLIS = 30_000;
+
+    // 超过次数后不再自动重试，保留在未同步列表中等待下次恢复或重启时推送
+    private static final int MAX_RETRY_ATTEMPTS = 8;
+
+    private final Project project;
+
+    private final ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Feign Mock Sync", 1);
+
+    private final ExecutorService replayExecutor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Feign Mock Replay", REPLAY_PARALLELISM);
+
+    // 以当前时间为起点，IDE 重启后版本号仍然大于之前发送过的版本
+    private final AtomicLong versionGenerator = new AtomicLong(System.currentTimeMillis());
+
+    // 已提交但尚未发送的签名
+    private final Set<String> dirtySignatures = ConcurrentHashMap.newKeySet();
+
+    // 未同步的 (实例, 签名) -> 连续失败次数（挂起为 0）
+    private final Map<PendingKey, Integer> unsyncedSignatures = new ConcurrentHashMap<>();
+
+    // 正在等待重放的 (实例, 签名)，避免退避重试和恢复重放重复排队
+    private final Set<PendingKey> replayingSignatures = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 未同步记录的键，实例以 id 区分，不持有实例对象
+     */
+    private record PendingKey(String instanceId, String signature) {
+    }
+
+    public AgentSyncQueue(Project project) {
+        this.project = project;
+    }
+
+    public static AgentSyncQueue getInstance(@NotNull Project project) {
+        return project.getService(AgentSyncQueue.class);
+    }
+
+    public long nextVersion() {
+        return versionGenerator.incrementAndGet();
+    }
+
+    /**
+     * 未同步到任一实例的签名数量，同一签名在多个实例上未同步只计一次
+     */
+    public int getUnsyncedCount() {
+        return (int) unsyncedSignatures.keySet().stream().map(PendingKey::signature).distinct().count();
+    }
+
+    /**
+     * 提交签名，发送时从 FeignMockData 读取最新数据，数据不存在则发送删除
+     */
+    public void submit(String signature) {
+        // 已在队列中的签名无需重复排队，发送时自然会读到最新数据
+        if (dirtySignatures.add(signature)) {
+            executor.execute(() -> drain(signature));
+        }
+    }
+
+    /**
+     * 应用恢复运行后并行重放所有未同步的记录，每条只发往对应实例，重放失败的转入退避重试
+     */
+    public void replayPending() {
+        if (unsyncedSignatures.isEmpty()) return;
+        log.info("Replaying " + unsyncedSignatures.size() + " pending signatures...");
+        for (PendingKey key : unsyncedSignatures.keySet()) {
+            // 恢复运行是新的机会，重新计算退避
+            unsyncedSignatures.replace(key, 0);
+            enqueueReplay(key);
+        }
+    }
+
+    /**
+     * 记录一次发往指定实例的发送结果，维护未同步列表
+     *
+     * @return 是否发送成功（挂起不算失败）
+     */
+    public boolean recordResult(AgentInstance instance, String signature, String result) {
+        PendingKey key = new PendingKey(instance.getId(), signature);
+        if ("OK".equals(result) || "Deleted".equals(result)) {
+            // 签名已重新提交时由下一次发送决定
+            if (!dirtySignatures.contains(signature) && unsyncedSignatures.remove(key) != null) {
+                fireCountChanged();
+            }
+            return true;
+        }
+        // 实例已停止时无需记录，下次启动会全量推送
+        if (instance.getStatus() == StartupStatus.STOPPED) {
+            return true;
+        }
+        if (AgentRequestManager.STATUS_SUSPENDED.equals(result)) {
+            if (unsyncedSignatures.putIfAbsent(key, 0) == null) {
+                fireCountChanged();
+            }
+            return true;
+        }
+        boolean added = !unsyncedSignatures.containsKey(key);
+        int attempts = unsyncedSignatures.merge(key, 1, Integer::sum);
+        if (added) {
+            fireCountChanged();
+        }
+        scheduleRetry(key, attempts);
+        return false;
+    }
+
+    /**
+     * 已与指定实例一致的签名（如 manifest 摘要相同），移出未同步列表
+     */
+    public void markSynced(AgentInstance instance, String signature) {
+        if (!dirtySignatures.contains(signature) && unsyncedSignatures.remove(new PendingKey(instance.getId(), signature)) != null) {
+            fireCountChanged();
+        }
+    }
+
+    /**
+     * 实例停止后其 Agent 状态随之丢失，下次启动会全量推送，只丢弃该实例的记录
+     */
+    public void clearPending(AgentInstance instance) {
+        if (unsyncedSignatures.keySet().removeIf(key -> key.instanceId().equals(instance.getId()))) {
+            fireCountChanged();
+        }
+    }
+
+    private void drain(String signature) {
+        if (project.isDisposed()) return;
+        // 先出队再读取数据，读取之后的新提交会重新排队
+        dirtySignatures.remove(signature);
+
+        if (!send(signature)) {
+            ApplicationManager.getApplication().invokeLater(() -> NotificationUtil.showError(project, "Apply failed!"), project.getDisposed());
+        }
+    }
+
+    private void scheduleRetry(PendingKey key, int attempts) {
+        if (attempts > MAX_RETRY_ATTEMPTS) {
+            log.warn("Giving up retrying " + key.signature() + " on instance " + key.instanceId() + " after " + MAX_RETRY_ATTEMPTS + " attempts");
+            return;
+        }
+        long delay = Math.min(RETRY_BASE_DELAY_MILLIS << (attempts - 1), RETRY_MAX_DELAY_MILLIS);
+        AppExecutorUtil.getAppScheduledExecutorService().schedule(() -> enqueueReplay(key), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void enqueueReplay(PendingKey key) {
+        if (project.isDisposed() || replayExecutor.isShutdown()) return;
+        if (replayingSignatures.add(key)) {
+            replayExecutor.execute(() -> replay(key));
+        }
+    }
+
+    private void replay(PendingKey key) {
+        replayingSignatures.remove(key);
+        // 已被移出（发送成功或实例已停止）、或主队列即将发送时无需重放
+        if (project.isDisposed() || !unsyncedSignatures.containsKey(key) || dirtySignatures.contains(key.signature())) return;
+        AgentInstance instance = FeignMockRuntimeManager.getInstance(project).findInstance(key.instanceId());
+        if (instance == null || instance.getStatus() == StartupStatus.STOPPED) {
+            // 实例已不存在，记录不会再被清理
+            if (unsyncedSignatures.remove(key) != null) {
+                fireCountChanged();
+            }
+            return;
+        }
+        if (instance.getStatus() != StartupStatus.RUNNING) return;
+        send(instance, key.signature());
+    }
+
+    /**
+     * 发往所有需要该签名的运行实例，分别记录结果
+     *
+     * @return 是否全部发送成功（挂起不算失败）
+     */
+    private boolean send(String signature) {
+        long version = nextVersion();
+        String json = FeignMockData.getInstance(project).get(signature);
+        Map<AgentInstance, String> results = json != null
+                ? AgentRequestManager.sendUpdateEach(project, signature, json, version)
+                : AgentRequestManager.sendClearEach(project, signature, version);
+        boolean success = true;
+        for (Map.Entry<AgentInstance, String> entry : results.entrySet()) {
+            log.info("发送结果: " + signature + " -> " + entry.getKey() + ": " + entry.getValue());
+            success &= recordResult(entry.getKey(), signature, entry.getValue());
+        }
+        return success;
+    }
+
+    private void send(AgentInstance instance, String signature) {
+        long version = nextVersion();
+        String json = FeignMockData.getInstance(project).get(signature);
+        String result = json != null
+                ? AgentRequestManager.sendUpdate(project, instance, signature, json, version)
+                : AgentRequestManager.sendClear(project, instance, signature, version);
+        log.info("重放结果: " + signature + " -> " + instance + ": " + result);
+        recordResult(instance, signature, result);
+    }
+
+    private void fireCountChanged() {
+        if (project.isDisposed()) return;
+        project.getMessageBus().syncPublisher(AgentSyncListener.TOPIC).unsyncedCountChanged(getUnsyncedCount());
+    }
+
+    @Override
+    public void dispose() {
+        executor.shutdownNow();
+        replayExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.lizhiwei88.feign.mock.plugin.network;
+
+import com.github.lizhiwei88.feign.mock.plugin.common.MockDataDigest;
+
+import java.util.Map;
+
+/**
+ * 插件与单个 Agent 实例之间的传输层
+ * 由 {@link AgentEndpoint} 实现，持久化通道可用时优先走通道，否则使用 HTTP
+ *
+ * @author lizhiwei
+ * @version 1.0
+ * @since 2026/01/21
+ */
+public interface AgentTransport {
+
+    /**
+     * 更新 Mock 数据
+     *
+     * @param version 单调递增的版本号，Agent 据此丢弃比已持有版本更旧的写入
+     * @return Agent 返回结果，成功时为 OK
+     */
+    String sendUpdate(String signature, String json, long version);
+
+    /**
+     * 删除 Mock 数据
+     *
+     * @param version 单调递增的版本号
+     * @return Agent 返回结果，成功时为 Deleted
+     */
+    String sendClear(String signature, long version);
+
+    /**
+     * 探测 Agent 是否可用
+     *
+     * @return Agent 返回结果，成功时为 pong
+     */
+    String sendPing();
+
+    /**
+     * 批量更新 Mock 数据
+     *
+     * @param mocks   签名 -> JSON
+     * @param version 读取快照时的版本号，作用于批量中的每一条
+     * @return 每个签名的处理结果，超时或连接失败时每个签名记为 Error；
+     * 只有 Agent 明确不支持批量操作（HTTP 404 或回复 unsupported）时返回 null
+     */
+    Map<String, String> sendBatchUpdate(Map<String, String> mocks, long version);
+
+    /**
+     * 获取 Agent 当前持有的 Mock 数据摘要，用于增量同步
+     *
+     * @return 签名 -> 内容摘要（见 {@link MockDataDigest#hash(String)}）；不支持时返回 null
+     */
+    Map<String, String> fetchManifest();
+}
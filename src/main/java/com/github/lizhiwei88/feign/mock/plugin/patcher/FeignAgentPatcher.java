@@ -1,20 +1,31 @@
 package com.github.lizhiwei88.feign.mock.plugin.patcher;
 
+import com.github.lizhiwei88.feign.mock.plugin.common.AgentInstance;
+import com.github.lizhiwei88.feign.mock.plugin.common.FeignMockRuntimeManager;
+import com.github.lizhiwei88.feign.mock.plugin.network.AgentCallbackServer;
+import com.github.lizhiwei88.feign.mock.plugin.network.AgentEndpoint;
+import com.github.lizhiwei88.feign.mock.plugin.network.AgentHandshakeWatcher;
 import com.intellij.execution.Executor;
 import com.intellij.execution.configurations.JavaParameters;
+import com.intellij.execution.configurations.ModuleBasedConfiguration;
 import com.intellij.execution.configurations.RunConfiguration;
 import com.intellij.execution.configurations.RunProfile;
 import com.intellij.execution.runners.JavaProgramPatcher;
 import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.projectRoots.JavaSdkVersion;
 import com.intellij.openapi.projectRoots.Sdk;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.psi.search.GlobalSearchScope;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * FeignAgentPatcher
@@ -52,6 +63,25 @@ public class FeignAgentPatcher extends JavaProgramPatcher {
         // 5. 针对 JDK 17+ (Spring Boot 3) 开启强行反射访问
         addOpensForJava17(javaParameters);
 
+        // 6. 传入就绪回调地址，Agent 端点绑定后主动通知插件
+        String callbackAddress = AgentCallbackServer.getInstance(project).getAddress();
+        if (callbackAddress != null) {
+            javaParameters.getVMParametersList().addProperty(AgentCallbackServer.CALLBACK_PROPERTY, callbackAddress);
+        }
+
+        // 7. 登记运行实例，Agent 回调时回传实例 id，多个应用同时运行时据此区分
+        AgentInstance instance = FeignMockRuntimeManager.getInstance(project).prepareInstance(configuration, getRuntimeScope(configuration));
+        javaParameters.getVMParametersList().addProperty(AgentCallbackServer.INSTANCE_PROPERTY, instance.getId());
+
+        // 8. 传入握手文件路径，回调不可达时 Agent 写入该文件
+        Path handshakeFile = AgentHandshakeWatcher.getInstance(project).getHandshakeFile(instance.getId());
+        if (handshakeFile != null) {
+            javaParameters.getVMParametersList().addProperty(AgentHandshakeWatcher.HANDSHAKE_PROPERTY, handshakeFile.toString());
+        }
+
+        // 9. JDK 16+ 且平台支持时，传入 Unix Domain Socket 路径
+        addSocketPath(project, instance, javaParameters);
+
         log.info("[Feign-Mock-Plugin] Successfully patched agent to: " + configuration.getName());
     }
 
@@ -79,6 +109,38 @@ public class FeignAgentPatcher extends JavaProgramPatcher {
         }
     }
 
+    /**
+     * 运行配置模块的运行时 classpath，用于判断 Feign Client 是否属于该实例
+     */
+    private GlobalSearchScope getRuntimeScope(RunProfile configuration) {
+        if (configuration instanceof ModuleBasedConfiguration<?, ?> moduleBasedConfiguration) {
+            Module module = moduleBasedConfiguration.getConfigurationModule().getModule();
+            if (module != null) {
+                return GlobalSearchScope.moduleRuntimeScope(module, false);
+            }
+        }
+        return null;
+    }
+
+    private void addSocketPath(Project project, AgentInstance instance, JavaParameters javaParameters) {
+        Sdk sdk = javaParameters.getJdk();
+        if (sdk == null) return;
+        JavaSdkVersion version = JavaSdkVersion.fromVersionString(sdk.getVersionString());
+        if (version == null || !version.isAtLeast(JavaSdkVersion.JDK_16)) return;
+
+        Path socketPath = AgentEndpoint.getSocketPath(project, instance.getId());
+        // 平台不支持或路径超出 sun_path 长度时不声明该属性，Agent 只使用 TCP
+        if (socketPath == null) return;
+        try {
+            // 清理上次运行残留的 socket 文件，否则 Agent 无法绑定
+            Files.deleteIfExists(socketPath);
+        } catch (IOException e) {
+            log.warn("Failed to delete stale socket file: " + socketPath, e);
+            return;
+        }
+        javaParameters.getVMParametersList().addProperty(AgentEndpoint.SOCKET_PROPERTY, socketPath.toString());
+    }
+
     private void addOpensForJava17(JavaParameters javaParameters) {
         Sdk sdk = javaParameters.getJdk();
         if (sdk != null) {
@@ -0,0 +1,290 @@
+package com.github.lizhiwei88.feign.mock.plugin.scanner;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.*;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.IOUtil;
+import com.intellij.util.io.KeyDescriptor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * FeignClient 文件索引
+ * 按文件记录 @FeignClient 接口的全限定名和方法签名，签名格式与 FeignMethodNode 一致；
+ * 索引阶段不能解析其他文件，参数类型只按本文件的 import 解析，无法确定的签名记为 null，由调用方回退到 PSI；
+ * 按 java.lang 解析的简单名可能被同包的同名类型遮蔽，这些名字随条目记录，由调用方在查询时确认
+ *
+ * @author lizhiwei
+ * @version 1.0
+ * @since 2026/02/02
+ */
+public final class FeignClientIndex extends FileBasedIndexExtension<String, List<FeignClientIndex.MethodEntry>> {
+
+    public static final ID<String, List<MethodEntry>> NAME = ID.create("com.github.lizhiwei88.feign.mock.FeignClientIndex");
+
+    private static final String FEIGN_CLIENT_SIMPLE_NAME = "FeignClient";
+
+    private static final String FEIGN_CLIENT_PACKAGE = StringUtil.getPackageName(FeignClientScanner.FEIGN_CLIENT_ANNOTATION);
+
+    /**
+     * 方法名和签名，签名无法在索引阶段确定时为 null
+     *
+     * @param javaLangNames 签名中按 java.lang 解析的简单名，同包存在同名类型时签名不可用
+     */
+    public record MethodEntry(@NotNull String name, @Nullable String signature, @NotNull List<String> javaLangNames) {
+    }
+
+    @Override
+    public @NotNull ID<String, List<MethodEntry>> getName() {
+        return NAME;
+    }
+
+    @Override
+    public @NotNull DataIndexer<String, List<MethodEntry>, FileContent> getIndexer() {
+        return inputData -> {
+            // 不包含注解名的文件无需解析
+            if (!StringUtil.contains(inputData.getContentAsText(), FEIGN_CLIENT_SIMPLE_NAME)) return Map.of();
+            if (!(inputData.getPsiFile() instanceof PsiJavaFile javaFile)) return Map.of();
+            LocalTypeResolver resolver = new LocalTypeResolver(javaFile);
+            Map<String, List<MethodEntry>> result = new HashMap<>();
+            for (PsiClass psiClass : javaFile.getClasses()) {
+                indexClass(psiClass, resolver, result);
+            }
+            return result;
+        };
+    }
+
+    private static void indexClass(PsiClass psiClass, LocalTypeResolver resolver, Map<String, List<MethodEntry>> result) {
+        String qualifiedName = psiClass.getQualifiedName();
+        if (qualifiedName != null && isFeignClient(psiClass, resolver)) {
+            List<MethodEntry> methods = new ArrayList<>();
+            for (PsiMethod method : psiClass.getMethods()) {
+                Set<String> javaLangNames = new TreeSet<>();
+                String signature = resolver.signature(qualifiedName, method, javaLangNames);
+                methods.add(new MethodEntry(method.getName(), signature, signature == null ? List.of() : List.copyOf(javaLangNames)));
+            }
+            result.put(qualifiedName, methods);
+        }
+        for (PsiClass innerClass : psiClass.getInnerClasses()) {
+            indexClass(innerClass, resolver, result);
+        }
+    }
+
+    /**
+     * 只比较注解引用的文本，不解析注解类
+     */
+    private static boolean isFeignClient(PsiClass psiClass, LocalTypeResolver resolver) {
+        PsiModifierList modifierList = psiClass.getModifierList();
+        if (modifierList == null) return false;
+        for (PsiAnnotation annotation : modifierList.getAnnotations()) {
+            PsiJavaCodeReferenceElement reference = annotation.getNameReferenceElement();
+            if (reference == null) continue;
+            String name = StringUtil.trimWhitespace(reference.getText());
+            if (FeignClientScanner.FEIGN_CLIENT_ANNOTATION.equals(name)) return true;
+            if (FEIGN_CLIENT_SIMPLE_NAME.equals(name) && resolver.importsFeignClient()) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public @NotNull KeyDescriptor<String> getKeyDescriptor() {
+        return EnumeratorStringDescriptor.INSTANCE;
+    }
+
+    @Override
+    public @NotNull DataExternalizer<List<MethodEntry>> getValueExternalizer() {
+        return new DataExternalizer<>() {
+            @Override
+            public void save(@NotNull DataOutput out, List<MethodEntry> value) throws IOException {
+                DataInputOutputUtil.writeINT(out, value.size());
+                for (MethodEntry entry : value) {
+                    IOUtil.writeUTF(out, entry.name());
+                    out.writeBoolean(entry.signature() != null);
+                    if (entry.signature() != null) {
+                        IOUtil.writeUTF(out, entry.signature());
+                    }
+                    DataInputOutputUtil.writeINT(out, entry.javaLangNames().size());
+                    for (String name : entry.javaLangNames()) {
+                        IOUtil.writeUTF(out, name);
+                    }
+                }
+            }
+
+            @Override
+            public List<MethodEntry> read(@NotNull DataInput in) throws IOException {
+                int size = DataInputOutputUtil.readINT(in);
+                List<MethodEntry> entries = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    String name = IOUtil.readUTF(in);
+                    String signature = in.readBoolean() ? IOUtil.readUTF(in) : null;
+                    int nameCount = DataInputOutputUtil.readINT(in);
+                    List<String> javaLangNames = new ArrayList<>(nameCount);
+                    for (int j = 0; j < nameCount; j++) {
+                        javaLangNames.add(IOUtil.readUTF(in));
+                    }
+                    entries.add(new MethodEntry(name, signature, javaLangNames));
+                }
+                return entries;
+            }
+        };
+    }
+
+    @Override
+    public int getVersion() {
+        // 2: 记录按 java.lang 解析的简单名
+        // 3: 参数名后的数组维度
+        return 3;
+    }
+
+    @Override
+    public FileBasedIndex.@NotNull InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(JavaFileType.INSTANCE);
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    /**
+     * 只依据本文件的 package、import 和类声明解析类型名，生成与 PsiType#getCanonicalText 相同的文本
+     */
+    private static final class LocalTypeResolver {
+
+        private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z_$][\\w$]*(?:\\s*\\.\\s*[A-Za-z_$][\\w$]*)*");
+
+        private static final Pattern ANNOTATION_PATTERN = Pattern.compile("@\\s*[\\w$.]+(?:\\s*\\([^)]*\\))?");
+
+        private static final Set<String> PRIMITIVES = Set.of(
+                "boolean", "byte", "char", "short", "int", "long", "float", "double", "void");
+
+        private static final Set<String> JAVA_LANG = Set.of(
+                "Object", "String", "Boolean", "Byte", "Character", "Short", "Integer", "Long", "Float", "Double",
+                "Number", "Void", "Class", "Enum", "Record", "Iterable", "CharSequence", "Comparable",
+                "Throwable", "Exception", "RuntimeException", "StringBuilder");
+
+        // 简单名 -> 全限定名，来自单类型 import 和本文件声明的类
+        private final Map<String, String> knownTypes = new HashMap<>();
+
+        private final Set<String> onDemandPackages = new HashSet<>();
+
+        LocalTypeResolver(PsiJavaFile javaFile) {
+            PsiImportList importList = javaFile.getImportList();
+            if (importList != null) {
+                for (PsiImportStatement statement : importList.getImportStatements()) {
+                    PsiJavaCodeReferenceElement reference = statement.getImportReference();
+                    if (reference == null) continue;
+                    String name = StringUtil.trimWhitespace(reference.getText());
+                    if (statement.isOnDemand()) {
+                        onDemandPackages.add(name);
+                    } else {
+                        knownTypes.put(StringUtil.getShortName(name), name);
+                    }
+                }
+            }
+            for (PsiClass psiClass : javaFile.getClasses()) {
+                collectDeclaredTypes(psiClass);
+            }
+        }
+
+        private void collectDeclaredTypes(PsiClass psiClass) {
+            if (psiClass.getName() != null && psiClass.getQualifiedName() != null) {
+                knownTypes.put(psiClass.getName(), psiClass.getQualifiedName());
+            }
+            for (PsiClass innerClass : psiClass.getInnerClasses()) {
+                collectDeclaredTypes(innerClass);
+            }
+        }
+
+        boolean importsFeignClient() {
+            return FeignClientScanner.FEIGN_CLIENT_ANNOTATION.equals(knownTypes.get(FEIGN_CLIENT_SIMPLE_NAME))
+                    || onDemandPackages.contains(FEIGN_CLIENT_PACKAGE);
+        }
+
+        /**
+         * @param javaLangNames 收集按 java.lang 解析的简单名
+         * @return 任一参数类型无法在本文件内确定时返回 null
+         */
+        String signature(String className, PsiMethod method, Set<String> javaLangNames) {
+            Set<String> typeParameters = new HashSet<>();
+            for (PsiTypeParameterListOwner owner = method; owner != null; owner = owner.getContainingClass()) {
+                for (PsiTypeParameter typeParameter : owner.getTypeParameters()) {
+                    typeParameters.add(typeParameter.getName());
+                }
+            }
+            StringJoiner parameters = new StringJoiner(",", className + "#" + method.getName() + "(", ")");
+            for (PsiParameter parameter : method.getParameterList().getParameters()) {
+                PsiTypeElement typeElement = parameter.getTypeElement();
+                String canonicalText = typeElement == null ? null : canonicalText(typeElement.getText(), typeParameters, javaLangNames);
+                if (canonicalText == null) return null;
+                parameters.add(canonicalText + trailingDimensions(parameter));
+            }
+            return parameters.toString();
+        }
+
+        /**
+         * C 风格数组参数 String ids[] 的维度写在参数名之后，不在类型元素中
+         */
+        private static String trailingDimensions(PsiParameter parameter) {
+            StringBuilder dimensions = new StringBuilder();
+            PsiIdentifier name = parameter.getNameIdentifier();
+            for (PsiElement child = name == null ? null : name.getNextSibling(); child != null; child = child.getNextSibling()) {
+                if (child instanceof PsiJavaToken token && token.getTokenType() == JavaTokenType.LBRACKET) {
+                    dimensions.append("[]");
+                }
+            }
+            return dimensions.toString();
+        }
+
+        private String canonicalText(String typeText, Set<String> typeParameters, Set<String> javaLangNames) {
+            String text = ANNOTATION_PATTERN.matcher(typeText).replaceAll(" ");
+            StringBuilder result = new StringBuilder();
+            Matcher matcher = NAME_PATTERN.matcher(text);
+            int last = 0;
+            while (matcher.find()) {
+                result.append(StringUtil.trimWhitespace(text.substring(last, matcher.start())).replaceAll("\\s+", ""));
+                String name = matcher.group().replaceAll("\\s+", "");
+                if ("extends".equals(name) || "super".equals(name)) {
+                    // 通配符边界保留空格: ? extends java.lang.Number
+                    result.append(' ').append(name).append(' ');
+                } else {
+                    String resolved = resolve(name, typeParameters, javaLangNames);
+                    if (resolved == null) return null;
+                    result.append(resolved);
+                }
+                last = matcher.end();
+            }
+            result.append(text.substring(last).replaceAll("\\s+", ""));
+            return result.toString();
+        }
+
+        private String resolve(String name, Set<String> typeParameters, Set<String> javaLangNames) {
+            if (PRIMITIVES.contains(name) || typeParameters.contains(name)) return name;
+            int dot = name.indexOf('.');
+            String first = dot < 0 ? name : name.substring(0, dot);
+            String rest = dot < 0 ? "" : name.substring(dot);
+            String known = knownTypes.get(first);
+            if (known != null) return known + rest;
+            // 小写开头的限定名视为已写全包名
+            if (dot > 0 && Character.isLowerCase(first.charAt(0))) return name;
+            // 同包类型优先于 java.lang，索引阶段无法确认，记录下来由查询方检查
+            if (JAVA_LANG.contains(first)) {
+                javaLangNames.add(first);
+                return "java.lang." + name;
+            }
+            // 同包或按需导入的类型需要解析才能确定
+            return null;
+        }
+    }
+}
@@ -1,14 +1,23 @@
 package com.github.lizhiwei88.feign.mock.plugin.scanner;
 
+import com.github.lizhiwei88.feign.mock.plugin.model.MockSignatureRegistry;
+import com.intellij.lang.java.JavaLanguage;
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootModificationTracker;
 import com.intellij.psi.*;
 import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.search.searches.AnnotatedElementsSearch;
-import com.intellij.psi.util.TypeConversionUtil;
-import com.intellij.util.Query;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.indexing.FileBasedIndex;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -28,64 +37,79 @@ public class FeignClientScanner {
 
     /**
      * 扫描项目中所有的 FeignClient 接口
+     * 结果缓存到 Java 结构或项目依赖发生变化，方法体内的编辑不会导致重新扫描
      */
     public static List<PsiClass> findAllFeignClients(Project project) {
-        List<PsiClass> result = new ArrayList<>();
+        return CachedValuesManager.getManager(project).getCachedValue(project, () -> CachedValueProvider.Result.create(
+                scanFeignClients(project),
+                PsiModificationTracker.getInstance(project).forLanguage(JavaLanguage.INSTANCE),
+                ProjectRootModificationTracker.getInstance(project)));
+    }
 
-        // 1. 获取 FeignClient 注解的 PsiClass
+    /**
+     * 从 FeignClientIndex 取出全限定名，再通过 stub 索引定位类，不加载文件的完整 PSI
+     */
+    private static List<PsiClass> scanFeignClients(Project project) {
+        FileBasedIndex index = FileBasedIndex.getInstance();
+        GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
         JavaPsiFacade facade = JavaPsiFacade.getInstance(project);
-        PsiClass feignAnnotation = facade.findClass(FEIGN_CLIENT_ANNOTATION, GlobalSearchScope.allScope(project));
-
-        if (feignAnnotation != null) {
-            // 2. 搜索所有使用了该注解的接口
-            Query<PsiClass> query = AnnotatedElementsSearch.searchPsiClasses(feignAnnotation, GlobalSearchScope.projectScope(project));
-            // 3. 对搜索结果进行排序
-            List<PsiClass> allResults = query.findAll().stream()
-                    .sorted((o1, o2) -> {
-                        // 首先比较类名，如果类名相同则比较全限定名
-                        int nameComparison = o1.getName().compareTo(Objects.requireNonNull(o2.getName()));
-                        if (nameComparison != 0) {
-                            return nameComparison;
-                        }
-                        String qualifiedName1 = o1.getQualifiedName();
-                        String qualifiedName2 = o2.getQualifiedName();
-                        return qualifiedName1 != null && qualifiedName2 != null ?
-                                qualifiedName1.compareTo(qualifiedName2) :
-                                0;
-                    })
-                    .toList();
-            result.addAll(allResults);
+        List<PsiClass> result = new ArrayList<>();
+        for (String qualifiedName : index.getAllKeys(FeignClientIndex.NAME, project)) {
+            // getAllKeys 可能包含已失效的键，以实际包含该键的文件为准
+            if (index.getContainingFiles(FeignClientIndex.NAME, qualifiedName, scope).isEmpty()) continue;
+            PsiClass psiClass = facade.findClass(qualifiedName, scope);
+            if (psiClass != null) {
+                result.add(psiClass);
+            }
         }
-        return result;
+        // 首先比较类名，如果类名相同则比较全限定名
+        result.sort(Comparator.comparing((PsiClass psiClass) -> Objects.requireNonNull(psiClass.getName()))
+                .thenComparing(psiClass -> Objects.requireNonNull(psiClass.getQualifiedName())));
+        return Collections.unmodifiableList(result);
     }
 
     /**
-     * 将 PsiMethod 转换为与 Agent 匹配的 Key (ClassName#MethodName)
+     * 索引中记录的方法签名，顺序与 {@link PsiClass#getMethods()} 一致
+     *
+     * @return 未被索引或索引不可用时返回 null
      */
-    public static String getMethodSignature(PsiMethod method) {
-        PsiClass containingClass = method.getContainingClass();
-        if (containingClass == null) return "";
-
-        StringBuilder signature = new StringBuilder();
-        signature.append(containingClass.getQualifiedName())
-                .append("#")
-                .append(method.getName())
-                .append("(");
-
-        PsiParameter[] parameters = method.getParameterList().getParameters();
-        for (int i = 0; i < parameters.length; i++) {
-            // 获取参数的全限定类型，例如 java.lang.String 或 com.example.UserDTO
-            PsiType type = parameters[i].getType();
-
-            // getCanonicalText() 能准确拿到包名全路径
-            signature.append(TypeConversionUtil.erasure(type).getCanonicalText());
+    public static List<FeignClientIndex.MethodEntry> getIndexedMethods(PsiClass client) {
+        if (DumbService.isDumb(client.getProject())) return null;
+        String qualifiedName = client.getQualifiedName();
+        PsiFile file = client.getContainingFile();
+        if (qualifiedName == null || file == null || file.getVirtualFile() == null) return null;
+        List<List<FeignClientIndex.MethodEntry>> values = FileBasedIndex.getInstance()
+                .getValues(FeignClientIndex.NAME, qualifiedName, GlobalSearchScope.fileScope(file));
+        if (values.isEmpty()) return null;
+        String packageName = file instanceof PsiJavaFile javaFile ? javaFile.getPackageName() : "";
+        return excludeShadowed(client, packageName, values.get(0));
+    }
 
-            if (i < parameters.length - 1) {
-                signature.append(",");
+    /**
+     * 同包存在与 java.lang 同名的类型时，索引按 java.lang 解析的签名是错的，清空签名回退到 PSI
+     */
+    private static List<FeignClientIndex.MethodEntry> excludeShadowed(PsiClass client, String packageName, List<FeignClientIndex.MethodEntry> entries) {
+        JavaPsiFacade facade = JavaPsiFacade.getInstance(client.getProject());
+        GlobalSearchScope scope = client.getResolveScope();
+        Map<String, Boolean> shadowed = new HashMap<>();
+        List<FeignClientIndex.MethodEntry> result = new ArrayList<>(entries.size());
+        for (FeignClientIndex.MethodEntry entry : entries) {
+            boolean ambiguous = false;
+            for (String name : entry.javaLangNames()) {
+                ambiguous |= shadowed.computeIfAbsent(name, key ->
+                        facade.findClass(packageName.isEmpty() ? key : packageName + "." + key, scope) != null);
             }
+            result.add(ambiguous ? new FeignClientIndex.MethodEntry(entry.name(), null, List.of()) : entry);
         }
-        signature.append(")");
+        return result;
+    }
 
-        return signature.toString();
+    /**
+     * 将 PsiMethod 转换为与 Agent 匹配的 Key (ClassName#MethodName(参数类型))
+     * 与树节点使用同一份签名，保留泛型参数
+     */
+    public static String getMethodSignature(PsiMethod method) {
+        if (method.getContainingClass() == null) return "";
+        return MockSignatureRegistry.getInstance(method.getProject()).signatureOf(method);
     }
 }
\ No newline at end of file
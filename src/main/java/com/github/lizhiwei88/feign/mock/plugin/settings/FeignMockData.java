@@ -1,18 +1,29 @@
 package com.github.lizhiwei88.feign.mock.plugin.settings;
 
+import com.github.lizhiwei88.feign.mock.plugin.common.MockDataDigest;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.components.PersistentStateComponent;
 import com.intellij.openapi.components.Service;
 import com.intellij.openapi.components.State;
 import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
-import com.intellij.util.xmlb.XmlSerializerUtil;
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.file.Path;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * FeignMockData 持久化数据
+ * feign_mock_data.xml 只保存签名和内容摘要的索引，Mock 内容保存在 .idea/feign-mock 目录下，按需加载；
+ * 内容文件在后台写入，修改时只更新内存中的索引和缓存，不阻塞调用线程
+ * 索引以不可变快照发布：写入时复制并递增版本号，读取方无需加锁也无需复制
  *
  * @author lizhiwei
  * @version 1.0
@@ -20,19 +31,80 @@ import java.util.Map;
  */
 @Service(Service.Level.PROJECT)
 @State(name = "FeignMockData", storages = @Storage("feign_mock_data.xml"))
-public final class FeignMockData implements PersistentStateComponent<FeignMockData> {
+public final class FeignMockData implements PersistentStateComponent<FeignMockData.State>, Disposable {
 
-    // 要持久化的 Map 数据
-    public Map<String, String> mapData = new HashMap<>();
+    private static final Logger log = Logger.getInstance(FeignMockData.class);
+
+    public static class State {
+        // 签名 -> 内容摘要
+        public Map<String, String> index = new HashMap<>();
+
+        // 旧版本直接保存的 Mock 内容，加载时迁移到独立文件；文件写入失败时仍保存在这里
+        public Map<String, String> mapData = new HashMap<>();
+    }
+
+    private final Project project;
+
+    private final MockBodyStore bodyStore;
+
+    // 文件写入失败、只能保存在 XML 中的 Mock 内容
+    private final Map<String, String> fallbackBodies = new ConcurrentHashMap<>();
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public FeignMockData(Project project) {
+        this.project = project;
+        this.bodyStore = new MockBodyStore(project.getBasePath() == null ? null : Path.of(project.getBasePath(), ".idea", "feign-mock"),
+                this::onWriteFailed);
+    }
 
     @Override
-    public @NotNull FeignMockData getState() {
-        return this;
+    public @NotNull State getState() {
+        State state = new State();
+        snapshot.entries.forEach((signature, entry) -> state.index.put(signature, entry.hash));
+        state.mapData.putAll(fallbackBodies);
+        return state;
     }
 
     @Override
-    public void loadState(@NotNull FeignMockData feignMockData) {
-        XmlSerializerUtil.copyBean(feignMockData, this);
+    public void loadState(@NotNull State state) {
+        Set<String> changed = new HashSet<>();
+        synchronized (this) {
+            bodyStore.reset();
+            fallbackBodies.clear();
+            Map<String, String> index = new HashMap<>(state.index);
+            migrate(state.mapData, index);
+            Snapshot previous = snapshot;
+            long version = previous.version + 1;
+            // 外部修改（如 VCS 更新）后重新加载，摘要未变的条目保留原版本号，只通知有变化的签名
+            Map<String, Entry> entries = new HashMap<>();
+            index.forEach((signature, hash) -> {
+                Entry entry = previous.entries.get(signature);
+                if (entry != null && Objects.equals(entry.hash, hash)) {
+                    entries.put(signature, entry);
+                } else {
+                    entries.put(signature, new Entry(hash, version));
+                    changed.add(signature);
+                }
+            });
+            Map<String, Long> removed = new HashMap<>(previous.removed);
+            previous.entries.keySet().stream()
+                    .filter(signature -> !index.containsKey(signature))
+                    .forEach(signature -> {
+                        removed.put(signature, version);
+                        changed.add(signature);
+                    });
+            removed.keySet().removeAll(index.keySet());
+            snapshot = new Snapshot(version, entries, removed);
+        }
+        fireChanged(changed);
+        // 在后台清理索引未引用的文件，并移除文件已丢失的条目
+        bodyStore.reconcile(() -> snapshot.getSignatures(), this::onBodiesMissing);
+    }
+
+    @Override
+    public void dispose() {
+        bodyStore.close();
     }
 
     // 获取单例服务
@@ -40,23 +112,191 @@ public final class FeignMockData implements PersistentStateComponent<FeignMockDa
         return project.getService(FeignMockData.class);
     }
 
-    // 实用方法：设置键值
+    /**
+     * 当前索引快照，可在任意线程读取
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    // 实用方法：设置键值，文件在后台写入
     public void put(String key, String value) {
-        mapData.put(key, value);
+        String hash = MockDataDigest.hash(value);
+        synchronized (this) {
+            bodyStore.write(key, value);
+            fallbackBodies.remove(key);
+            // 内容进入缓存后再发布快照，看到新摘要的读取方一定能读到新内容
+            snapshot = snapshot.with(key, hash);
+        }
+        fireChanged(Set.of(key));
     }
 
-    // 实用方法：获取值
+    // 实用方法：获取值，首次访问时从文件加载
     public String get(String key) {
-        return mapData.get(key);
+        if (!snapshot.contains(key)) return null;
+        String fallback = fallbackBodies.get(key);
+        return fallback != null ? fallback : bodyStore.read(key);
+    }
+
+    // 实用方法：是否已设置 Mock，只查索引
+    public boolean contains(String key) {
+        return snapshot.contains(key);
     }
 
     // 实用方法：删除键
     public void remove(String key) {
-        mapData.remove(key);
+        synchronized (this) {
+            if (!snapshot.contains(key)) return;
+            snapshot = snapshot.without(key);
+            fallbackBodies.remove(key);
+            bodyStore.delete(key);
+        }
+        fireChanged(Set.of(key));
+    }
+
+    // 实用方法：获取内容摘要，未设置时返回 null，无需加载内容
+    public String getHash(String key) {
+        return snapshot.getHash(key);
+    }
+
+    // 获取所有已设置 Mock 的签名，不可修改
+    public Set<String> getSignatures() {
+        return snapshot.getSignatures();
+    }
+
+    /**
+     * 后台写入失败，内容仍是最新时改为保存在 XML 中
+     */
+    private void onWriteFailed(String key, String value) {
+        String hash = MockDataDigest.hash(value);
+        synchronized (this) {
+            if (hash.equals(snapshot.getHash(key))) {
+                fallbackBodies.put(key, value);
+            }
+        }
+    }
+
+    /**
+     * 索引中有记录但内容文件已丢失（如被手动删除）的签名无法再读取，从索引中移除
+     */
+    private void onBodiesMissing(Set<String> keys) {
+        Set<String> changed = new HashSet<>();
+        synchronized (this) {
+            for (String key : keys) {
+                // 对账期间重新写入的签名以新内容为准
+                if (!snapshot.contains(key) || fallbackBodies.containsKey(key) || bodyStore.hasPending(key)) continue;
+                snapshot = snapshot.without(key);
+                changed.add(key);
+            }
+        }
+        if (!changed.isEmpty()) {
+            log.warn("Removed " + changed.size() + " mock entries whose data files are missing");
+        }
+        fireChanged(changed);
     }
 
-    // 获取整个 Map 副本
-    public Map<String, String> getAll() {
-        return new HashMap<>(mapData);
+    /**
+     * 在锁外通知，监听方可以直接读取最新数据
+     */
+    private void fireChanged(Set<String> signatures) {
+        if (signatures.isEmpty() || project.isDisposed()) return;
+        project.getMessageBus().syncPublisher(FeignMockDataListener.TOPIC).mockDataChanged(signatures);
+    }
+
+    /**
+     * 把旧版本保存在 XML 中的 Mock 内容迁移到独立文件，文件在后台写入，失败的仍保存在 XML 中
+     */
+    private void migrate(Map<String, String> mapData, Map<String, String> index) {
+        if (mapData.isEmpty()) return;
+        int migrated = 0;
+        for (Map.Entry<String, String> entry : mapData.entrySet()) {
+            if (entry.getValue() == null) continue;
+            index.put(entry.getKey(), MockDataDigest.hash(entry.getValue()));
+            bodyStore.write(entry.getKey(), entry.getValue());
+            migrated++;
+        }
+        log.info("Migrating " + migrated + " mock entries from feign_mock_data.xml");
+    }
+
+    /**
+     * 索引条目：内容摘要和最后修改时的版本号
+     */
+    private record Entry(String hash, long version) {
+    }
+
+    /**
+     * 不可变的索引快照
+     * 写入时复制索引（只有签名和摘要，不含 Mock 内容），删除的签名保留版本号用于 {@link #changedSince(long)}
+     */
+    public static final class Snapshot {
+
+        private static final Snapshot EMPTY = new Snapshot(0, Map.of(), Map.of());
+
+        private final long version;
+
+        private final Map<String, Entry> entries;
+
+        // 本次会话中删除的签名 -> 删除时的版本号
+        private final Map<String, Long> removed;
+
+        private Snapshot(long version, Map<String, Entry> entries, Map<String, Long> removed) {
+            this.version = version;
+            this.entries = Collections.unmodifiableMap(entries);
+            this.removed = Collections.unmodifiableMap(removed);
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public boolean contains(String signature) {
+            return entries.containsKey(signature);
+        }
+
+        public String getHash(String signature) {
+            Entry entry = entries.get(signature);
+            return entry == null ? null : entry.hash;
+        }
+
+        public Set<String> getSignatures() {
+            return entries.keySet();
+        }
+
+        /**
+         * 指定版本之后新增、修改或删除的签名
+         */
+        public Set<String> changedSince(long sinceVersion) {
+            if (sinceVersion >= version) return Set.of();
+            Set<String> changed = new HashSet<>();
+            entries.forEach((signature, entry) -> {
+                if (entry.version > sinceVersion) changed.add(signature);
+            });
+            removed.forEach((signature, removedVersion) -> {
+                if (removedVersion > sinceVersion) changed.add(signature);
+            });
+            return changed;
+        }
+
+        private Snapshot with(String signature, String hash) {
+            long next = version + 1;
+            Map<String, Entry> nextEntries = new HashMap<>(entries);
+            nextEntries.put(signature, new Entry(hash, next));
+            Map<String, Long> nextRemoved = removed;
+            if (removed.containsKey(signature)) {
+                nextRemoved = new HashMap<>(removed);
+                nextRemoved.remove(signature);
+            }
+            return new Snapshot(next, nextEntries, nextRemoved);
+        }
+
+        private Snapshot without(String signature) {
+            if (!entries.containsKey(signature)) return this;
+            long next = version + 1;
+            Map<String, Entry> nextEntries = new HashMap<>(entries);
+            nextEntries.remove(signature);
+            Map<String, Long> nextRemoved = new HashMap<>(removed);
+            nextRemoved.put(signature, next);
+            return new Snapshot(next, nextEntries, nextRemoved);
+        }
     }
 }
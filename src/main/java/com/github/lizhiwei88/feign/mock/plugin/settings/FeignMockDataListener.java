@@ -0,0 +1,24 @@
+package com.github.lizhiwei88.feign.mock.plugin.settings;
+
+import com.intellij.util.messages.Topic;
+
+import java.util.Set;
+
+/**
+ * Mock 数据变化监听
+ *
+ * @author lizhiwei
+ * @version 1.0
+ * @since 2026/01/30
+ */
+public interface FeignMockDataListener {
+
+    Topic<FeignMockDataListener> TOPIC = Topic.create("Feign Mock Data", FeignMockDataListener.class);
+
+    /**
+     * Mock 数据新增、修改或删除，在修改数据的线程回调，可能不是 EDT
+     *
+     * @param signatures 发生变化的签名，批量操作时一次通知
+     */
+    void mockDataChanged(Set<String> signatures);
+}
@@ -1,16 +1,18 @@
 package com.github.lizhiwei88.feign.mock.plugin.settings;
 
-import com.github.lizhiwei88.feign.mock.plugin.patcher.FeignAgentPatcher;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.JDOMUtil;
+import com.intellij.util.xmlb.XmlSerializerUtil;
 import org.jdom.Element;
 
-import java.io.FileInputStream;
-import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
 
 /**
  * FeignMockSetting文件加载类
+ * 旧版 Agent 把端口直接写入 feign_mock_settings.xml，由 AgentHandshakeWatcher 在文件变化时调用
  *
  * @author lizhiwei
  * @version 1.0
@@ -18,17 +20,22 @@ import java.io.InputStream;
  */
 public class FeignMockSettingFileReload {
 
-    private static final Logger log = Logger.getInstance(FeignAgentPatcher.class);
+    private static final Logger log = Logger.getInstance(FeignMockSettingFileReload.class);
 
     private FeignMockSettingFileReload() {
     }
 
     public static void parseExternalXml(Project project) {
-        try (InputStream in = new FileInputStream(project.getBasePath() + "/.idea/feign_mock_settings.xml")) {
-            Element root = JDOMUtil.load(in);
+        if (project.getBasePath() == null) return;
+        Path file = Path.of(project.getBasePath(), ".idea", "feign_mock_settings.xml");
+        if (!Files.isRegularFile(file)) return;
+        try {
+            Element root = JDOMUtil.load(file);
             Element component = root.getChild("component");
             if (component == null) return;
-            FeignMockSettings.State state = new FeignMockSettings.State();
+            FeignMockSettings service = FeignMockSettings.getInstance(project);
+            // 只更新端口，其余设置沿用当前值，避免被默认值覆盖后在下次保存时丢失
+            FeignMockSettings.State state = XmlSerializerUtil.createCopy(Objects.requireNonNull(service.getState()));
             for (Element option : component.getChildren("option")) {
                 String name = option.getAttributeValue("name");
                 String value = option.getAttributeValue("value");
@@ -36,11 +43,11 @@ public class FeignMockSettingFileReload {
                     state.lastKnownPort = Integer.parseInt(value);
                 }
             }
-            FeignMockSettings service = FeignMockSettings.getInstance(project);
             service.loadState(state);
             log.info("FeignMockSettings reloaded: port=" + state.lastKnownPort);
         } catch (Exception e) {
-            e.printStackTrace();
+            // 文件可能正在被写入，下一次变化事件会重新加载
+            log.warn("Failed to reload " + file + ": " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
@@ -21,6 +21,12 @@ public final class FeignMockSettings implements PersistentStateComponent<FeignMo
 
     public static class State {
         public int lastKnownPort = -1;
+
+        // Auto Generate 最多生成的值个数
+        public int generateMaxNodes = 5000;
+
+        // Auto Generate 输出的最大字符数
+        public int generateMaxChars = 1024 * 1024;
     }
 
     private State myState = new State();
@@ -0,0 +1,293 @@
+package com.github.lizhiwei88.feign.mock.plugin.settings;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.io.DigestUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Mock 内容文件存储
+ * 每个签名一个文件，按 Feign Client 分目录: &lt;Client 全限定名&gt;/&lt;方法名&gt;-&lt;签名 SHA-256&gt;.json，
+ * 按需读取，最近使用的内容保存在有界 LRU 缓存中。
+ * 写入和删除先进入待写表并立即对读取可见，由单线程在后台落盘，同一签名未落盘的多次修改只写最后一次
+ *
+ * @author lizhiwei
+ * @version 1.0
+ * @since 2026/01/28
+ */
+final class MockBodyStore {
+
+    private static final Logger log = Logger.getInstance(MockBodyStore.class);
+
+    // 缓存的 Mock 内容条数上限
+    private static final int CACHE_SIZE = 128;
+
+    private final Path directory;
+
+    // 后台写入失败时回调: 签名 -> 内容，由调用方改为保存在 XML 中
+    private final BiConsumer<String, String> writeFailureHandler;
+
+    private final ExecutorService writer = AppExecutorUtil.createBoundedApplicationPoolExecutor("Feign Mock Body Store", 1);
+
+    private final Map<String, String> cache = Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    });
+
+    // 尚未落盘的修改
+    private final Map<String, PendingWrite> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 待落盘的修改，body 为 null 表示删除
+     */
+    private record PendingWrite(String body) {
+    }
+
+    /**
+     * @param directory           存储目录，为 null 时写入失败
+     * @param writeFailureHandler 写入失败时回调，在后台线程执行
+     */
+    MockBodyStore(Path directory, BiConsumer<String, String> writeFailureHandler) {
+        this.directory = directory;
+        this.writeFailureHandler = writeFailureHandler;
+    }
+
+    /**
+     * @return 文件不存在时返回 null
+     */
+    String read(String signature) {
+        PendingWrite write = pending.get(signature);
+        if (write != null) return write.body();
+        String body = cache.get(signature);
+        if (body != null || directory == null) return body;
+        try {
+            body = Files.readString(fileFor(signature), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            // 旧版文件名尚未被对账迁移
+            body = readLegacy(signature);
+            if (body == null) return null;
+        } catch (IOException e) {
+            log.warn("Failed to read mock data of " + signature + ": " + e.getMessage());
+            return null;
+        }
+        // 读取期间有新写入时保留新内容
+        cache.putIfAbsent(signature, body);
+        return body;
+    }
+
+    /**
+     * 内容立即可读，文件在后台写入
+     */
+    void write(String signature, String body) {
+        cache.put(signature, body);
+        enqueue(signature, new PendingWrite(body));
+    }
+
+    void delete(String signature) {
+        enqueue(signature, new PendingWrite(null));
+        cache.remove(signature);
+    }
+
+    /**
+     * 是否有尚未落盘的修改
+     */
+    boolean hasPending(String signature) {
+        return pending.containsKey(signature);
+    }
+
+    /**
+     * 外部重新加载时以磁盘上的文件为准，丢弃缓存和未落盘的修改
+     */
+    void reset() {
+        cache.clear();
+        pending.clear();
+    }
+
+    /**
+     * 在后台写入线程上与磁盘对账，与写入串行执行，不会误删刚写入的文件:
+     * 删除索引未引用的文件，并报告索引中有记录但文件不存在的签名
+     *
+     * @param indexedSignatures 执行时读取的索引签名
+     * @param missingHandler    文件缺失的签名，在后台线程回调
+     */
+    void reconcile(Supplier<Set<String>> indexedSignatures, Consumer<Set<String>> missingHandler) {
+        if (directory == null || writer.isShutdown()) return;
+        writer.execute(() -> doReconcile(indexedSignatures.get(), missingHandler));
+    }
+
+    private synchronized void doReconcile(Set<String> indexedSignatures, Consumer<Set<String>> missingHandler) {
+        if (!Files.isDirectory(directory)) return;
+        Set<String> missing = new HashSet<>();
+        Set<Path> referenced = new HashSet<>();
+        for (String signature : indexedSignatures) {
+            Path file = fileFor(signature);
+            referenced.add(file);
+            if (pending.containsKey(signature) || Files.isRegularFile(file)) continue;
+            Path legacy = legacyFileFor(signature);
+            if (!Files.isRegularFile(legacy)) {
+                missing.add(signature);
+            } else if (!migrateLegacy(signature, legacy, file)) {
+                // 迁移失败时保留旧文件，读取时仍可回退
+                referenced.add(legacy);
+            }
+        }
+        pending.keySet().forEach(signature -> referenced.add(fileFor(signature)));
+        List<Path> orphans;
+        try (Stream<Path> files = Files.walk(directory)) {
+            orphans = files.filter(Files::isRegularFile).filter(file -> !referenced.contains(file)).toList();
+        } catch (IOException e) {
+            log.warn("Failed to scan mock data directory: " + e.getMessage());
+            return;
+        }
+        for (Path orphan : orphans) {
+            try {
+                Files.deleteIfExists(orphan);
+            } catch (IOException e) {
+                log.warn("Failed to delete orphan mock data " + orphan + ": " + e.getMessage());
+            }
+        }
+        if (!orphans.isEmpty()) {
+            log.info("Deleted " + orphans.size() + " mock data files not referenced by feign_mock_data.xml");
+        }
+        if (!missing.isEmpty()) {
+            missingHandler.accept(missing);
+        }
+    }
+
+    /**
+     * 落盘所有未写入的修改并停止后台线程，项目关闭时调用
+     */
+    void close() {
+        writer.shutdown();
+        for (String signature : List.copyOf(pending.keySet())) {
+            flush(signature);
+        }
+    }
+
+    private void enqueue(String signature, PendingWrite write) {
+        // 已在队列中的签名无需重复排队，落盘时读取最新的修改
+        if (pending.put(signature, write) == null && !writer.isShutdown()) {
+            writer.execute(() -> flush(signature));
+        }
+    }
+
+    /**
+     * 只有落盘的修改仍是最新时才移出待写表，否则继续写入新的修改
+     */
+    private synchronized void flush(String signature) {
+        while (true) {
+            PendingWrite write = pending.get(signature);
+            if (write == null) return;
+            if (write.body() == null) {
+                deleteFile(signature);
+            } else {
+                try {
+                    writeFile(signature, write.body());
+                } catch (IOException e) {
+                    log.warn("Failed to write mock data of " + signature + ", keep it in feign_mock_data.xml: " + e.getMessage());
+                    writeFailureHandler.accept(signature, write.body());
+                }
+            }
+            if (pending.remove(signature, write)) return;
+        }
+    }
+
+    /**
+     * 先写临时文件再原子替换，避免读到写了一半的内容
+     */
+    private void writeFile(String signature, String body) throws IOException {
+        if (directory == null) throw new IOException("Mock data directory is not available");
+        Path file = fileFor(signature);
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, body, StandardCharsets.UTF_8);
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void deleteFile(String signature) {
+        if (directory == null) return;
+        try {
+            Files.deleteIfExists(fileFor(signature));
+            // 尚未迁移的旧版文件一并删除，避免读取时回退到已删除的内容
+            Files.deleteIfExists(legacyFileFor(signature));
+        } catch (IOException e) {
+            log.warn("Failed to delete mock data of " + signature + ": " + e.getMessage());
+        }
+    }
+
+    private String readLegacy(String signature) {
+        try {
+            return Files.readString(legacyFileFor(signature), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 把旧版文件复制为新文件名，旧文件不再被引用，随后作为孤立文件删除；
+     * 旧版文件名发生冲突的重载共用同一份内容，无法区分
+     *
+     * @return 是否复制成功
+     */
+    private boolean migrateLegacy(String signature, Path legacy, Path file) {
+        try {
+            Files.copy(legacy, file, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            log.warn("Failed to migrate mock data of " + signature + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 签名中的参数类型可能包含 &lt;&gt;、逗号等文件名不允许的字符，文件名只保留方法名，用签名的 SHA-256 区分重载
+     */
+    private Path fileFor(String signature) {
+        return fileFor(signature, DigestUtil.sha256Hex(signature.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 旧版文件名使用 32 位 hashCode，重载之间可能冲突，只用于迁移
+     */
+    private Path legacyFileFor(String signature) {
+        return fileFor(signature, String.format("%08x", signature.hashCode()));
+    }
+
+    private Path fileFor(String signature, String hash) {
+        int hashIndex = signature.indexOf('#');
+        int parenIndex = signature.indexOf('(', Math.max(hashIndex, 0));
+        String className = hashIndex > 0 ? signature.substring(0, hashIndex) : "_";
+        String methodName = hashIndex > 0 && parenIndex > hashIndex ? signature.substring(hashIndex + 1, parenIndex) : signature;
+        String fileName = sanitize(methodName) + "-" + hash + ".json";
+        return directory.resolve(sanitize(className)).resolve(fileName);
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^A-Za-z0-9._$-]", "_");
+    }
+}
@@ -1,10 +1,11 @@
 package com.github.lizhiwei88.feign.mock.plugin.ui;
 
-import com.github.lizhiwei88.feign.mock.plugin.model.FeignMethodNode;
+import com.github.lizhiwei88.feign.mock.plugin.settings.FeignMockDataListener;
 import com.github.lizhiwei88.feign.mock.plugin.ui.json.FeignMockJsonPanel;
 import com.github.lizhiwei88.feign.mock.plugin.ui.tree.FeignClientDataLoader;
 import com.github.lizhiwei88.feign.mock.plugin.ui.tree.FeignClientTree;
 import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.project.Project;
@@ -14,8 +15,6 @@ import com.intellij.ui.components.JBScrollPane;
 import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.ui.JBUI;
 
-import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.DefaultTreeModel;
 import java.awt.*;
 
 /**
@@ -40,10 +39,10 @@ public class FeignMockTab extends JBPanel<FeignMockTab> implements Disposable {
         setBorder(JBUI.Borders.empty(0, -1));
 
         // 1. 初始化 Tree
-        feignTree = new FeignClientTree();
+        feignTree = new FeignClientTree(project, this);
 
         // 2. 初始化 JSON Panel
-        feignMockJsonPanel = new FeignMockJsonPanel(project, feignTree);
+        feignMockJsonPanel = new FeignMockJsonPanel(project, feignTree, this);
 
         // 3. 初始化 Splitter
         JBSplitter splitter = new JBSplitter(true, 0.4f);
@@ -55,6 +54,8 @@ public class FeignMockTab extends JBPanel<FeignMockTab> implements Disposable {
 
         // 4. 绑定事件
         feignTree.setOnMethodSelected(node -> feignMockJsonPanel.getJsonEditorPanel().setJsonEditorContent(node));
+        project.getMessageBus().connect(this).subscribe(FeignMockDataListener.TOPIC, (FeignMockDataListener) signatures ->
+                ApplicationManager.getApplication().invokeLater(() -> feignTree.mockDataChanged(signatures), project.getDisposed()));
 
         // 5. 初始加载
         refreshTree();
@@ -75,15 +76,8 @@ public class FeignMockTab extends JBPanel<FeignMockTab> implements Disposable {
                 .finishOnUiThread(ModalityState.defaultModalityState(), clientDatas -> {
                     // --- 核心：这部分回到 UI 线程执行，负责渲染 ---
                     feignTree.setPaintBusy(false);
-                    DefaultMutableTreeNode root = new DefaultMutableTreeNode("Feign Clients");
-                    for (FeignClientDataLoader.ClientData data : clientDatas) {
-                        DefaultMutableTreeNode clientNode = new DefaultMutableTreeNode(data.name);
-                        for (FeignMethodNode methodNode : data.methods) {
-                            clientNode.add(new DefaultMutableTreeNode(methodNode));
-                        }
-                        root.add(clientNode);
-                    }
-                    feignTree.setModel(new DefaultTreeModel(root));
+                    // 与现有节点对比，只增删变化的节点，保留展开和选中状态
+                    feignTree.updateClients(clientDatas);
                     feignTree.getEmptyText().setText("No feign clients found");
 
                     if (onComplete != null) {
@@ -3,16 +3,17 @@ package com.github.lizhiwei88.feign.mock.plugin.ui.json;
 import com.github.lizhiwei88.feign.mock.plugin.common.FeignMockRuntimeManager;
 import com.github.lizhiwei88.feign.mock.plugin.common.StartupStatus;
 import com.github.lizhiwei88.feign.mock.plugin.model.FeignMethodNode;
-import com.github.lizhiwei88.feign.mock.plugin.network.AgentRequestManager;
-import com.github.lizhiwei88.feign.mock.plugin.notifications.NotificationUtil;
+import com.github.lizhiwei88.feign.mock.plugin.network.AgentSyncListener;
+import com.github.lizhiwei88.feign.mock.plugin.network.AgentSyncQueue;
 import com.github.lizhiwei88.feign.mock.plugin.settings.FeignMockData;
+import com.github.lizhiwei88.feign.mock.plugin.settings.FeignMockDataListener;
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
-import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.event.DocumentEvent;
 import com.intellij.openapi.editor.event.DocumentListener;
-import com.intellij.openapi.progress.ProgressIndicator;
-import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
+import com.intellij.ui.components.JBLabel;
 import com.intellij.ui.components.JBPanel;
 import com.intellij.ui.treeStructure.Tree;
 import org.apache.commons.lang3.StringUtils;
@@ -32,8 +33,6 @@ import java.util.Objects;
  */
 public class FeignMockJsonPanel extends JBPanel<FeignMockJsonPanel> {
 
-    private static final Logger log = Logger.getInstance(FeignMockJsonPanel.class);
-
     private final JsonEditorPanel jsonEditorPanel;
 
     private final transient Project project;
@@ -42,19 +41,25 @@ public class FeignMockJsonPanel extends JBPanel<FeignMockJsonPanel> {
 
     private final JButton cleanButton;
 
+    private final JBLabel unsyncedLabel;
+
     private final Tree feignTree;
 
-    public FeignMockJsonPanel(Project project, Tree feignTree) {
+    public FeignMockJsonPanel(Project project, Tree feignTree, Disposable parentDisposable) {
         super(new BorderLayout());
         this.project = project;
         this.feignTree = feignTree;
-        jsonEditorPanel = new JsonEditorPanel(project);
+        jsonEditorPanel = new JsonEditorPanel(project, parentDisposable);
         this.applyButton = new JButton("Apply");
         this.cleanButton = new JButton("Clean");
         this.applyButton.setEnabled(false);
         this.cleanButton.setEnabled(false);
         cleanButton.setEnabled(false);
+        this.unsyncedLabel = new JBLabel(AllIcons.General.Warning);
+        this.unsyncedLabel.setToolTipText("Mock data not yet delivered to the running application, will be replayed automatically");
+        updateUnsyncedLabel(AgentSyncQueue.getInstance(project).getUnsyncedCount());
         JBPanel buttonPanel = new JBPanel<>(new FlowLayout(FlowLayout.RIGHT, 10, 10));
+        buttonPanel.add(unsyncedLabel);
         buttonPanel.add(applyButton);
         buttonPanel.add(cleanButton);
         add(jsonEditorPanel, BorderLayout.CENTER);
@@ -79,6 +84,18 @@ public class FeignMockJsonPanel extends JBPanel<FeignMockJsonPanel> {
         // 监听按钮点击
         applyButton.addActionListener(e -> processJsonText(false));
         cleanButton.addActionListener(e -> processJsonText(true));
+        // 监听未同步数量变化
+        project.getMessageBus().connect(parentDisposable).subscribe(AgentSyncListener.TOPIC, (AgentSyncListener) count ->
+                ApplicationManager.getApplication().invokeLater(() -> updateUnsyncedLabel(count), project.getDisposed()));
+        // 当前方法的数据在别处被修改时刷新按钮状态
+        project.getMessageBus().connect(parentDisposable).subscribe(FeignMockDataListener.TOPIC, (FeignMockDataListener) signatures ->
+                ApplicationManager.getApplication().invokeLater(() -> {
+                    DefaultMutableTreeNode selectedNode = (DefaultMutableTreeNode) feignTree.getLastSelectedPathComponent();
+                    if (selectedNode != null && selectedNode.getUserObject() instanceof FeignMethodNode nodeData
+                            && signatures.contains(nodeData.getSignature())) {
+                        updateButtonStatus(nodeData.getMockData(), jsonEditorPanel.getJsonEditor().getText());
+                    }
+                }, project.getDisposed()));
     }
 
     public JsonEditorPanel getJsonEditorPanel() {
@@ -99,75 +116,40 @@ public class FeignMockJsonPanel extends JBPanel<FeignMockJsonPanel> {
             return;
         }
 
-        // 3. 处理请求逻辑 (异步化)
+        // 3. 处理请求逻辑，由同步队列异步发送，连续编辑会合并为一次请求
+        boolean running = FeignMockRuntimeManager.getInstance(project).getStatus() == StartupStatus.RUNNING;
         if (Objects.isNull(finalJson) || finalJson.isBlank()) {
             if (StringUtils.isNotBlank(nodeData.getMockData())) {
                 FeignMockData.getInstance(project).remove(nodeData.getSignature());
-
-                if (FeignMockRuntimeManager.getInstance(project).getStatus() == StartupStatus.RUNNING) {
-                    new Task.Backgroundable(project, "Clearing mock data...", true) {
-                        @Override
-                        public void run(@NotNull ProgressIndicator indicator) {
-                            log.info("发送清除请求中...");
-                            String result = AgentRequestManager.sendClear(project, nodeData.getSignature());
-                            log.info("发送结果: " + result);
-
-                            ApplicationManager.getApplication().invokeLater(() -> {
-                                if (!Objects.equals("Deleted", result) && !AgentRequestManager.STATUS_SUSPENDED.equals(result)) {
-                                    NotificationUtil.showError(project, "Apply failed!");
-                                } else {
-                                    // 成功或挂起后更新UI
-                                    updateUiAfterClear(nodeData);
-                                }
-                            });
-                        }
-                    }.queue();
-                    return; // 异步执行，直接返回
+                if (running) {
+                    AgentSyncQueue.getInstance(project).submit(nodeData.getSignature());
                 }
             }
-            // 如果不需要发请求(没启动或本地也没数据)，直接更新UI
             updateUiAfterClear(nodeData);
             return;
         }
 
         // 更新数据请求
         FeignMockData.getInstance(project).put(nodeData.getSignature(), finalJson);
-        if (FeignMockRuntimeManager.getInstance(project).getStatus() == StartupStatus.RUNNING) {
-            new Task.Backgroundable(project, "Updating mock data...", true) {
-                @Override
-                public void run(@NotNull ProgressIndicator indicator) {
-                    log.info("发送更新请求中...");
-                    String result = AgentRequestManager.sendUpdate(project, nodeData.getSignature(), finalJson);
-                    log.info("发送结果: " + result);
-
-                    ApplicationManager.getApplication().invokeLater(() -> {
-                        if (!Objects.equals("OK", result) && !AgentRequestManager.STATUS_SUSPENDED.equals(result)) {
-                            NotificationUtil.showError(project, "Apply failed!");
-                        } else {
-                            // 成功或挂起后更新UI
-                            updateUiAfterUpdate(nodeData, finalJson);
-                        }
-                    });
-                }
-            }.queue();
-            return; // 异步执行
+        if (running) {
+            AgentSyncQueue.getInstance(project).submit(nodeData.getSignature());
         }
-
-        // 如果服务没启动，直接更新UI
         updateUiAfterUpdate(nodeData, finalJson);
     }
 
+    // 树节点图标由 FeignMockDataListener 通知刷新
     private void updateUiAfterClear(FeignMethodNode nodeData) {
         jsonEditorPanel.getJsonEditor().setText(null);
-        nodeData.setMockData(null);
         updateButtonStatus(nodeData.getMockData(), null);
-        feignTree.repaint();
     }
 
     private void updateUiAfterUpdate(FeignMethodNode nodeData, String json) {
-        nodeData.setMockData(json);
         updateButtonStatus(nodeData.getMockData(), json);
-        feignTree.repaint();
+    }
+
+    private void updateUnsyncedLabel(int count) {
+        unsyncedLabel.setText(count + " unsynced");
+        unsyncedLabel.setVisible(count > 0);
     }
 
     private void updateButtonStatus(String mockData, String jsonText) {
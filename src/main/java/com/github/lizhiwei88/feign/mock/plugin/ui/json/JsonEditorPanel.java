@@ -2,10 +2,13 @@ package com.github.lizhiwei88.feign.mock.plugin.ui.json;
 
 import com.github.lizhiwei88.feign.mock.plugin.generator.MockDataGenerator;
 import com.github.lizhiwei88.feign.mock.plugin.model.FeignMethodNode;
+import com.github.lizhiwei88.feign.mock.plugin.notifications.NotificationUtil;
+import com.github.lizhiwei88.feign.mock.plugin.settings.FeignMockSettings;
 import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
 import com.intellij.json.JsonLanguage;
 import com.intellij.openapi.actionSystem.*;
-import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.openapi.editor.Document;
@@ -20,11 +23,13 @@ import com.intellij.ui.JBColor;
 import com.intellij.ui.LanguageTextField;
 import com.intellij.ui.components.JBLabel;
 import com.intellij.ui.components.JBPanel;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
 import javax.swing.tree.DefaultMutableTreeNode;
 import java.awt.*;
+import java.util.Objects;
 
 /**
  * JSON编辑面板
@@ -36,10 +41,14 @@ import java.awt.*;
 public class JsonEditorPanel extends JBPanel<JsonEditorPanel> {
 
     private final LanguageTextField jsonEditor;
-    private transient FeignMethodNode currentNode;
+    private transient volatile FeignMethodNode currentNode;
 
-    public JsonEditorPanel(Project project) {
+    // 异步生成任务随面板销毁而取消
+    private final transient Disposable parentDisposable;
+
+    public JsonEditorPanel(Project project, Disposable parentDisposable) {
         super(new CardLayout());
+        this.parentDisposable = parentDisposable;
         JBLabel emptyLabel = new JBLabel("");
         // 设置label内容剧中
         emptyLabel.setHorizontalAlignment(SwingConstants.CENTER);
@@ -99,21 +108,31 @@ public class JsonEditorPanel extends JBPanel<JsonEditorPanel> {
         group.add(new AnAction("Auto Generate", "Generate mock data based on return type", AllIcons.Actions.Lightning) {
             @Override
             public void actionPerformed(@NotNull AnActionEvent e) {
-                if (currentNode != null) {
-                    ApplicationManager.getApplication().executeOnPooledThread(() -> {
-                        String json = ReadAction.compute(() -> {
-                            PsiMethod method = currentNode.getPsiMethod();
+                FeignMethodNode node = currentNode;
+                if (node == null) return;
+                Project project = jsonEditor.getProject();
+                FeignMockSettings.State settings = Objects.requireNonNull(FeignMockSettings.getInstance(project).getState());
+                MockDataGenerator.Budget budget = new MockDataGenerator.Budget(settings.generateMaxNodes, settings.generateMaxChars);
+                // 可中断的读操作，生成大类型时不阻塞写操作；流式写出，完整生成的子结构缓存供下次复用
+                ReadAction.nonBlocking(() -> {
+                            PsiMethod method = node.getPsiMethod();
                             if (method == null || !method.isValid()) return null;
                             PsiType returnType = method.getReturnType();
                             if (returnType == null) return null;
-                            return MockDataGenerator.generateJson(returnType);
-                        });
-
-                        if (json != null) {
-                            ApplicationManager.getApplication().invokeLater(() -> jsonEditor.setText(json));
-                        }
-                    });
-                }
+                            return MockDataGenerator.generateJson(project, returnType, budget);
+                        })
+                        .inSmartMode(project)
+                        .expireWith(parentDisposable)
+                        // 生成期间切换了方法时放弃结果，避免写入其他方法的编辑器
+                        .expireWhen(() -> currentNode != node)
+                        .finishOnUiThread(ModalityState.defaultModalityState(), generated -> {
+                            if (generated == null || currentNode != node) return;
+                            jsonEditor.setText(generated.json());
+                            if (generated.truncated()) {
+                                NotificationUtil.showInfo(project, "Return type is too large, generated mock data was truncated");
+                            }
+                        })
+                        .submit(AppExecutorUtil.getAppExecutorService());
             }
         });
 
@@ -1,14 +1,19 @@
 package com.github.lizhiwei88.feign.mock.plugin.ui.tree;
 
 import com.github.lizhiwei88.feign.mock.plugin.model.FeignMethodNode;
+import com.github.lizhiwei88.feign.mock.plugin.model.MockSignatureRegistry;
+import com.github.lizhiwei88.feign.mock.plugin.scanner.FeignClientIndex;
 import com.github.lizhiwei88.feign.mock.plugin.scanner.FeignClientScanner;
-import com.github.lizhiwei88.feign.mock.plugin.settings.FeignMockData;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootModificationTracker;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiMethod;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -22,7 +27,7 @@ import java.util.List;
 public class FeignClientDataLoader {
 
     /**
-     * 加载 Feign 客户端数据
+     * 加载 Feign 客户端数据，只包含客户端本身，方法在展开时由 {@link #loadMethods} 加载
      *
      * @param project 当前项目
      * @return 客户端数据列表
@@ -32,40 +37,86 @@ public class FeignClientDataLoader {
         if (project.isDisposed()) return clientDataList;
 
         List<PsiClass> clients = FeignClientScanner.findAllFeignClients(project);
-        // 提前获取 Mock 数据中心实例
-        FeignMockData mockDataStorage = FeignMockData.getInstance(project);
 
         for (PsiClass client : clients) {
             // 增加 isValid 检查，防止 PSI 失效
             if (!client.isValid()) continue;
 
-            List<FeignMethodNode> methodNodes = Arrays.stream(client.getMethods())
-                    .filter(PsiMethod::isValid) // 过滤无效方法
-                    .map(method -> {
-                        FeignMethodNode node = new FeignMethodNode(method);
-                        // 确保数据是最新的
-                        node.setMockData(mockDataStorage.get(node.getSignature()));
-                        return node;
-                    })
-                    .toList();
-
-            if (!methodNodes.isEmpty()) {
-                clientDataList.add(new ClientData(client.getName(), methodNodes));
+            // getMethods 由 stub 提供，不创建方法节点
+            if (client.getMethods().length > 0) {
+                clientDataList.add(new ClientData(client.getName(), client.getQualifiedName(),
+                        SmartPointerManager.createPointer(client)));
             }
         }
         return clientDataList;
     }
 
     /**
-     * 数据传输对象：包含客户端名称和方法列表
+     * 加载单个客户端的方法节点，需要在读操作中调用
+     *
+     * @return 客户端已失效时返回空列表
+     */
+    public static List<FeignMethodNode> loadMethods(ClientData clientData) {
+        PsiClass client = clientData.pointer.getElement();
+        if (client == null || !client.isValid()) return List.of();
+        return getMethodNodes(client);
+    }
+
+    /**
+     * 方法节点按类缓存，只在该类所在文件变化时重新构建，其他 Client 的节点直接复用
+     * 参数类型移动到其他包时，重构会同时更新本文件的 import，缓存随之失效；
+     * 签名注册表回收 id 后同样失效，不再复用持有已回收 id 的节点
+     */
+    private static List<FeignMethodNode> getMethodNodes(PsiClass client) {
+        return CachedValuesManager.getCachedValue(client, () -> CachedValueProvider.Result.create(
+                buildMethodNodes(client),
+                client,
+                ProjectRootModificationTracker.getInstance(client.getProject()),
+                MockSignatureRegistry.getInstance(client.getProject()).getRetainTracker()));
+    }
+
+    /**
+     * 优先使用索引中的签名，索引缺失、与 PSI 不一致或签名无法在索引阶段确定时才解析参数类型
+     */
+    private static List<FeignMethodNode> buildMethodNodes(PsiClass client) {
+        PsiMethod[] methods = client.getMethods();
+        List<FeignClientIndex.MethodEntry> entries = FeignClientScanner.getIndexedMethods(client);
+        if (entries != null && entries.size() != methods.length) {
+            entries = null;
+        }
+        List<FeignMethodNode> methodNodes = new ArrayList<>(methods.length);
+        for (int i = 0; i < methods.length; i++) {
+            PsiMethod method = methods[i];
+            // 过滤无效方法，Mock 内容在选中节点时才加载
+            if (!method.isValid()) continue;
+            FeignClientIndex.MethodEntry entry = entries != null ? entries.get(i) : null;
+            if (entry != null && entry.signature() != null && entry.name().equals(method.getName())) {
+                methodNodes.add(new FeignMethodNode(method, entry.signature()));
+            } else {
+                methodNodes.add(new FeignMethodNode(method));
+            }
+        }
+        return methodNodes;
+    }
+
+    /**
+     * 数据传输对象：包含客户端名称和 PSI 指针，同时作为树中客户端节点的 userObject
      */
     public static class ClientData {
         public final String name;
-        public final List<FeignMethodNode> methods;
+        // 不同包下可能有同名客户端，树刷新时按全限定名匹配节点
+        public final String qualifiedName;
+        public final SmartPsiElementPointer<PsiClass> pointer;
 
-        public ClientData(String name, List<FeignMethodNode> methods) {
+        public ClientData(String name, String qualifiedName, SmartPsiElementPointer<PsiClass> pointer) {
             this.name = name;
-            this.methods = methods;
+            this.qualifiedName = qualifiedName;
+            this.pointer = pointer;
+        }
+
+        @Override
+        public String toString() {
+            return name;
         }
     }
 }
@@ -1,18 +1,35 @@
 package com.github.lizhiwei88.feign.mock.plugin.ui.tree;
 
 import com.github.lizhiwei88.feign.mock.plugin.model.FeignMethodNode;
+import com.github.lizhiwei88.feign.mock.plugin.model.MockSignatureRegistry;
 import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.actionSystem.*;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiMethod;
 import com.intellij.ui.PopupHandler;
 import com.intellij.ui.treeStructure.Tree;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NotNull;
 
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeWillExpandListener;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreePath;
 import java.awt.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Feign客户端树形组件
@@ -23,13 +40,48 @@ import java.util.function.Consumer;
  */
 public class FeignClientTree extends Tree {
 
-    public FeignClientTree() {
-        super(new DefaultTreeModel(new DefaultMutableTreeNode("Loading...")));
+    private static final String ROOT_NAME = "Feign Clients";
+
+    // 方法尚未加载的客户端节点下的占位子节点，使节点可展开
+    private static final String LOADING = "Loading...";
+
+    private final Project project;
+
+    private final Disposable parentDisposable;
+
+    // 已加载（或正在加载）方法的客户端全限定名
+    private final Set<String> loadedClients = new HashSet<>();
+
+    // 方法签名 -> 树节点，随模型增删同步维护
+    private final Map<String, DefaultMutableTreeNode> methodNodes = new HashMap<>();
+
+    // 客户端全限定名 -> 树节点
+    private final Map<String, DefaultMutableTreeNode> clientNodes = new HashMap<>();
+
+    public FeignClientTree(Project project, Disposable parentDisposable) {
+        super(new DefaultTreeModel(new DefaultMutableTreeNode(LOADING)));
+        this.project = project;
+        this.parentDisposable = parentDisposable;
         setCellRenderer(new NoSelectionTreeCellRenderer());
         initListeners();
     }
 
     private void initListeners() {
+        // 首次展开客户端时异步加载方法
+        addTreeWillExpandListener(new TreeWillExpandListener() {
+            @Override
+            public void treeWillExpand(TreeExpansionEvent event) {
+                DefaultMutableTreeNode node = (DefaultMutableTreeNode) event.getPath().getLastPathComponent();
+                if (node.getUserObject() instanceof FeignClientDataLoader.ClientData client
+                        && !loadedClients.contains(client.qualifiedName)) {
+                    loadMethods(client);
+                }
+            }
+
+            @Override
+            public void treeWillCollapse(TreeExpansionEvent event) {
+            }
+        });
         // 右键菜单
         addMouseListener(new PopupHandler() {
             @Override
@@ -75,29 +127,207 @@ public class FeignClientTree extends Tree {
         });
     }
 
-    public boolean selectMethod(PsiMethod targetMethod) {
+    /**
+     * 将加载结果合并到现有模型，只对新增、删除、移动和变化的节点发出事件
+     * 未变化的节点原样保留，展开和选中状态不受影响；已加载方法的客户端在后台重新加载方法
+     */
+    public void updateClients(List<FeignClientDataLoader.ClientData> clients) {
         DefaultTreeModel model = (DefaultTreeModel) getModel();
         DefaultMutableTreeNode root = (DefaultMutableTreeNode) model.getRoot();
+        if (!ROOT_NAME.equals(root.getUserObject())) {
+            // 首次加载替换占位根节点
+            root = new DefaultMutableTreeNode(ROOT_NAME);
+            model = new DefaultTreeModel(root);
+            setModel(model);
+            methodNodes.clear();
+            clientNodes.clear();
+            loadedClients.clear();
+        }
+        DefaultTreeModel treeModel = model;
+        reconcileChildren(treeModel, root, clients, client -> client.qualifiedName, (clientNode, client) -> {
+            clientNode.setUserObject(client);
+            if (loadedClients.contains(client.qualifiedName)) {
+                loadMethods(client);
+            } else if (clientNode.getChildCount() == 0) {
+                insert(treeModel, clientNode, new DefaultMutableTreeNode(LOADING), 0, clientNode.getRoot() == treeModel.getRoot());
+            }
+        });
+        // 树重建后回收不再被节点引用的签名
+        MockSignatureRegistry.getInstance(project).retain(methodNodes.keySet());
+    }
+
+    /**
+     * 在非阻塞读操作中加载客户端的方法，完成后合并到对应节点
+     */
+    private void loadMethods(FeignClientDataLoader.ClientData client) {
+        loadedClients.add(client.qualifiedName);
+        ReadAction.nonBlocking(() -> FeignClientDataLoader.loadMethods(client))
+                .inSmartMode(project)
+                .expireWith(parentDisposable)
+                .finishOnUiThread(ModalityState.defaultModalityState(), methods -> applyMethods(client, methods))
+                .submit(AppExecutorUtil.getAppExecutorService())
+                // 加载被取消或失败时允许再次展开时重新加载，取消也通过 onError 回调
+                .onError(e -> ApplicationManager.getApplication().invokeLater(
+                        () -> loadedClients.remove(client.qualifiedName), project.getDisposed()));
+    }
+
+    private void applyMethods(FeignClientDataLoader.ClientData client, List<FeignMethodNode> methods) {
+        DefaultMutableTreeNode clientNode = clientNodes.get(client.qualifiedName);
+        // 加载期间客户端已被删除
+        if (clientNode == null) return;
+        DefaultTreeModel model = (DefaultTreeModel) getModel();
+        reconcileChildren(model, clientNode, methods, FeignMethodNode::getSignature, (methodNode, method) -> {
+            if (methodNode.getUserObject() != method) {
+                methodNode.setUserObject(method);
+                model.nodeChanged(methodNode);
+            }
+        });
+    }
+
+    /**
+     * 按 key 对齐子节点：删除已不存在的，按新顺序插入或移动，保留的节点交给 updater 更新
+     */
+    private <T> void reconcileChildren(DefaultTreeModel model, DefaultMutableTreeNode parent, List<T> items,
+                                              Function<T, String> keyOf, BiConsumer<DefaultMutableTreeNode, T> updater) {
+        // 新建节点尚未挂到树上，直接修改子节点，无需发出事件
+        boolean attached = parent.getRoot() == model.getRoot();
+        Map<String, T> itemsByKey = new HashMap<>();
+        for (T item : items) {
+            itemsByKey.put(keyOf.apply(item), item);
+        }
+        // 删除已不存在的节点，倒序删除避免下标变化
+        Map<String, DefaultMutableTreeNode> existing = new HashMap<>();
+        for (int i = parent.getChildCount() - 1; i >= 0; i--) {
+            DefaultMutableTreeNode child = (DefaultMutableTreeNode) parent.getChildAt(i);
+            String key = nodeKey(child);
+            if (key == null || !itemsByKey.containsKey(key) || existing.containsKey(key)) {
+                remove(model, child, attached);
+            } else {
+                existing.put(key, child);
+            }
+        }
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            DefaultMutableTreeNode node = existing.get(keyOf.apply(item));
+            if (node == null) {
+                node = new DefaultMutableTreeNode(item);
+                updater.accept(node, item);
+                insert(model, parent, node, i, attached);
+                continue;
+            }
+            if (parent.getIndex(node) != i) {
+                // 顺序变化（如重命名）时移动节点，节点本身保留
+                remove(model, node, attached);
+                insert(model, parent, node, i, attached);
+            }
+            updater.accept(node, item);
+        }
+    }
+
+    private void insert(DefaultTreeModel model, DefaultMutableTreeNode parent, DefaultMutableTreeNode node, int index, boolean attached) {
+        if (attached) {
+            model.insertNodeInto(node, parent, index);
+            // 新客户端节点的子节点在挂载前已建好，一并登记
+            register(node);
+        } else {
+            parent.insert(node, index);
+        }
+    }
+
+    private void remove(DefaultTreeModel model, DefaultMutableTreeNode node, boolean attached) {
+        if (attached) {
+            model.removeNodeFromParent(node);
+            unregister(node);
+        } else {
+            node.removeFromParent();
+        }
+    }
+
+    private void register(DefaultMutableTreeNode node) {
+        Object userObject = node.getUserObject();
+        if (userObject instanceof FeignMethodNode method) {
+            methodNodes.put(method.getSignature(), node);
+        } else if (userObject instanceof FeignClientDataLoader.ClientData client) {
+            clientNodes.put(client.qualifiedName, node);
+            for (int i = 0; i < node.getChildCount(); i++) {
+                register((DefaultMutableTreeNode) node.getChildAt(i));
+            }
+        }
+    }
+
+    private void unregister(DefaultMutableTreeNode node) {
+        Object userObject = node.getUserObject();
+        if (userObject instanceof FeignMethodNode method) {
+            methodNodes.remove(method.getSignature(), node);
+        } else if (userObject instanceof FeignClientDataLoader.ClientData client) {
+            if (clientNodes.remove(client.qualifiedName, node)) {
+                loadedClients.remove(client.qualifiedName);
+            }
+            for (int i = 0; i < node.getChildCount(); i++) {
+                unregister((DefaultMutableTreeNode) node.getChildAt(i));
+            }
+        }
+    }
+
+    private static String nodeKey(DefaultMutableTreeNode node) {
+        Object userObject = node.getUserObject();
+        if (userObject instanceof FeignClientDataLoader.ClientData client) return client.qualifiedName;
+        if (userObject instanceof FeignMethodNode method) return method.getSignature();
+        return null;
+    }
+
+    /**
+     * Mock 数据变化后只刷新受影响的方法节点，不重绘整棵树
+     */
+    public void mockDataChanged(Set<String> signatures) {
+        DefaultTreeModel model = (DefaultTreeModel) getModel();
+        for (String signature : signatures) {
+            DefaultMutableTreeNode methodNode = methodNodes.get(signature);
+            if (methodNode != null) {
+                model.nodeChanged(methodNode);
+            }
+        }
+    }
+
+    /**
+     * 按签名直接定位节点；签名因类型无法解析而不一致时，只在所属客户端下比较 PSI
+     * 找不到节点时同步加载所属客户端的方法，包括尚未展开、后台加载未完成或方法列表已过期的客户端
+     */
+    public boolean selectMethod(PsiMethod targetMethod) {
+        PsiClass containingClass = targetMethod.getContainingClass();
+        if (containingClass == null) return false;
+        String signature = MockSignatureRegistry.getInstance(project).signatureOf(targetMethod);
+        DefaultMutableTreeNode target = methodNodes.get(signature);
+        DefaultMutableTreeNode clientNode = clientNodes.get(containingClass.getQualifiedName());
+        if (target == null && clientNode != null && clientNode.getUserObject() instanceof FeignClientDataLoader.ClientData client) {
+            // 只同步加载这一个客户端的方法，之后到达的后台加载结果按 key 合并，不会重复添加节点
+            loadedClients.add(client.qualifiedName);
+            applyMethods(client, ReadAction.compute(() -> FeignClientDataLoader.loadMethods(client)));
+            target = methodNodes.get(signature);
+        }
+        if (target == null) {
+            target = findInClient(clientNode, targetMethod);
+        }
+        if (target == null) return false;
+        TreePath path = new TreePath(target.getPath());
+        setSelectionPath(path);
+        scrollPathToVisible(path);
+        return true;
+    }
 
-        // 遍历树节点寻找目标方法
-        int clientCount = root.getChildCount();
-        for (int i = 0; i < clientCount; i++) {
-            DefaultMutableTreeNode clientNode = (DefaultMutableTreeNode) root.getChildAt(i);
-            int methodCount = clientNode.getChildCount();
-            for (int j = 0; j < methodCount; j++) {
-                DefaultMutableTreeNode methodNode = (DefaultMutableTreeNode) clientNode.getChildAt(j);
-                if (methodNode.getUserObject() instanceof FeignMethodNode node) {
-                    PsiMethod psiMethod = node.getPsiMethod();
-                    // 使用 Manager 判断元素是否相等
-                    if (psiMethod != null && psiMethod.getManager().areElementsEquivalent(psiMethod, targetMethod)) {
-                        TreePath path = new TreePath(methodNode.getPath());
-                        setSelectionPath(path);
-                        scrollPathToVisible(path);
-                        return true;
-                    }
+    private static DefaultMutableTreeNode findInClient(DefaultMutableTreeNode clientNode, PsiMethod targetMethod) {
+        if (clientNode == null) return null;
+        int methodCount = clientNode.getChildCount();
+        for (int i = 0; i < methodCount; i++) {
+            DefaultMutableTreeNode methodNode = (DefaultMutableTreeNode) clientNode.getChildAt(i);
+            if (methodNode.getUserObject() instanceof FeignMethodNode node) {
+                PsiMethod psiMethod = node.getPsiMethod();
+                // 使用 Manager 判断元素是否相等
+                if (psiMethod != null && psiMethod.getManager().areElementsEquivalent(psiMethod, targetMethod)) {
+                    return methodNode;
                 }
             }
         }
-        return false;
+        return null;
     }
 }
@@ -40,7 +40,7 @@ public class NoSelectionTreeCellRenderer extends DefaultTreeCellRenderer {
         DefaultMutableTreeNode node = (DefaultMutableTreeNode) value;
         Object userObject = node.getUserObject();
         if (userObject instanceof FeignMethodNode feignMethodNode) {
-            if (feignMethodNode.getMockData() != null) {
+            if (feignMethodNode.hasMockData()) {
                 label.setIcon(methodSuccessIcon);
             } else {
                 label.setIcon(methodJsonIcon);